@@ -0,0 +1,25 @@
+-- Pooled sequence ids for orders, order items, cart items, payments and addresses (MySQL profile).
+--
+-- MySQL has no sequences, Hibernate keeps each one in a single row table (next_val) and reserves
+-- 50 ids per round trip. Run this once against an existing database BEFORE starting the new version,
+-- otherwise ddl-auto=update creates the tables starting at 1 and the first inserts collide with
+-- existing ids. Products already used product_seq and need nothing.
+--
+-- Each sequence starts one pool (50) above the highest existing id.
+
+CREATE TABLE order_seq (next_val BIGINT);
+INSERT INTO order_seq SELECT COALESCE(MAX(order_id), 0) + 51 FROM orders;
+
+CREATE TABLE order_item_seq (next_val BIGINT);
+INSERT INTO order_item_seq SELECT COALESCE(MAX(order_item_id), 0) + 51 FROM order_items;
+
+CREATE TABLE cart_item_seq (next_val BIGINT);
+INSERT INTO cart_item_seq SELECT COALESCE(MAX(cart_item_id), 0) + 51 FROM cart_items;
+
+CREATE TABLE payment_seq (next_val BIGINT);
+INSERT INTO payment_seq SELECT COALESCE(MAX(payment_id), 0) + 51 FROM payments;
+
+CREATE TABLE address_seq (next_val BIGINT);
+INSERT INTO address_seq SELECT COALESCE(MAX(address_id), 0) + 51 FROM addresses;
+
+-- The id columns keep AUTO_INCREMENT. It is unused from now on, Hibernate always inserts the id.
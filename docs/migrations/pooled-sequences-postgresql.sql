@@ -0,0 +1,25 @@
+-- Pooled sequence ids for orders, order items, cart items, payments and addresses (PostgreSQL profile).
+--
+-- Hibernate reserves 50 ids per nextval, so the sequences must INCREMENT BY 50. Run this once against
+-- an existing database BEFORE starting the new version, otherwise ddl-auto=update creates the sequences
+-- starting at 1 and the first inserts collide with existing ids. Products already used product_seq
+-- and need nothing.
+--
+-- Each sequence starts one pool (50) above the highest existing id.
+
+CREATE SEQUENCE order_seq INCREMENT BY 50;
+SELECT setval('order_seq', (SELECT COALESCE(MAX(order_id), 0) + 51 FROM orders), false);
+
+CREATE SEQUENCE order_item_seq INCREMENT BY 50;
+SELECT setval('order_item_seq', (SELECT COALESCE(MAX(order_item_id), 0) + 51 FROM order_items), false);
+
+CREATE SEQUENCE cart_item_seq INCREMENT BY 50;
+SELECT setval('cart_item_seq', (SELECT COALESCE(MAX(cart_item_id), 0) + 51 FROM cart_items), false);
+
+CREATE SEQUENCE payment_seq INCREMENT BY 50;
+SELECT setval('payment_seq', (SELECT COALESCE(MAX(payment_id), 0) + 51 FROM payments), false);
+
+CREATE SEQUENCE address_seq INCREMENT BY 50;
+SELECT setval('address_seq', (SELECT COALESCE(MAX(address_id), 0) + 51 FROM addresses), false);
+
+-- The id columns keep their identity/serial default. It is unused from now on, Hibernate always inserts the id.
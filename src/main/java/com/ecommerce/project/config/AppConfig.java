@@ -1,15 +1,22 @@
 package com.ecommerce.project.config;
 
-import org.modelmapper.ModelMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
-    @Bean("modelMapper")
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
+    // Used for the CSV product import and the CSV exports
+    @Bean
+    public CsvMapper csvMapper() {
+        return CsvMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
     }
 
 }
@@ -6,7 +6,10 @@ public class AppConstants {
     public static final String PAGE_SIZE = "50";
     public static final String SORT_CATEGORIES_BY = "categoryId";
     public static final String SORT_PRODUCTS_BY = "productId";
+    public static final String SORT_SEARCH_BY = "relevance";
     public static final String SORT_DIR = "asc";
     public static final String SORT_ORDERS_BY = "totalAmount";
     public static final String SORT_USERS_BY = "userId";
+    // Rows per round trip when streaming exports from the database
+    public static final String EXPORT_FETCH_SIZE = "1000";
 }
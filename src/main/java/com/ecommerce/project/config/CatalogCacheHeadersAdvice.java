@@ -0,0 +1,42 @@
+package com.ecommerce.project.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Adds the ETag and caching headers to successful catalog responses, right before the body is written.
+// Error responses of the same endpoints must not be cached and are left alone.
+@RestControllerAdvice
+public class CatalogCacheHeadersAdvice implements ResponseBodyAdvice<Object> {
+
+    @Autowired
+    private CatalogCacheInterceptor catalogCacheInterceptor;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && response instanceof ServletServerHttpResponse servletResponse
+                && servletRequest.getServletRequest().getAttribute(CatalogCacheInterceptor.ETAG_ATTRIBUTE) instanceof String etag
+                && HttpStatus.valueOf(servletResponse.getServletResponse().getStatus()).is2xxSuccessful()) {
+            servletResponse.getServletResponse().setHeader(HttpHeaders.ETAG, etag);
+            catalogCacheInterceptor.addCachingHeaders(servletResponse.getServletResponse());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ecommerce.project.config;
+
+import com.ecommerce.project.service.CatalogVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+// Conditional GETs of the public catalog: a client or CDN sending the current ETag in If-None-Match gets a 304
+// before the controller runs, so without any database access. Successful responses get the ETag and caching
+// headers from CatalogCacheHeadersAdvice.
+@Component
+public class CatalogCacheInterceptor implements HandlerInterceptor {
+    static final String ETAG_ATTRIBUTE = CatalogCacheInterceptor.class.getName() + ".etag";
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Value("${spring.app.catalogMaxAgeSeconds}")
+    private long maxAgeSeconds;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        // Taken before the data is read, a change committed meanwhile makes the next request miss instead of
+        // pinning old data to the new version
+        String etag = "\"" + catalogVersion.current() + "\"";
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        if (matchesIfNoneMatch(request, etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            response.setHeader(HttpHeaders.ETAG, etag);
+            addCachingHeaders(response);
+            return false;
+        }
+        return true;
+    }
+
+    // Weak comparison as required for If-None-Match, intermediaries that compress may have weakened the ETag
+    private static boolean matchesIfNoneMatch(HttpServletRequest request, String etag) {
+        for (String candidate : new ServletServerHttpRequest(request).getHeaders().getIfNoneMatch()) {
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Same body for every user, so shared caches may store it. Only Accept selects the representation,
+    // CORS adds Vary: Origin itself.
+    void addCachingHeaders(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().getHeaderValue());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+}
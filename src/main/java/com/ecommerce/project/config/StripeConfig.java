@@ -0,0 +1,91 @@
+package com.ecommerce.project.config;
+
+import com.ecommerce.project.exceptions.PaymentGatewayException;
+import com.stripe.StripeClient;
+import com.stripe.exception.InvalidRequestException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadConfig;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedThreadPoolBulkheadMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class StripeConfig {
+    private static final String STRIPE = "stripe";
+
+    // One client for the application instead of the static Stripe.apiKey: its HTTP connections are kept alive
+    // and reused between calls, and every call is bounded by the connect and read timeouts.
+    // stripe.api.base can point to a local stand-in for tests.
+    @Bean
+    public StripeClient stripeClient(@Value("${stripe.secret.key}") String apiKey,
+                                     @Value("${stripe.api.base}") String apiBase,
+                                     @Value("${stripe.connectTimeoutMillis}") int connectTimeoutMillis,
+                                     @Value("${stripe.readTimeoutMillis}") int readTimeoutMillis,
+                                     @Value("${stripe.maxNetworkRetries}") int maxNetworkRetries) {
+        return StripeClient.builder()
+                .setApiKey(apiKey)
+                .setApiBase(apiBase)
+                .setConnectTimeout(connectTimeoutMillis)
+                .setReadTimeout(readTimeoutMillis)
+                .setMaxNetworkRetries(maxNetworkRetries)
+                .build();
+    }
+
+    // Stripe calls run here instead of on the servlet threads, so a slow provider cannot pin them.
+    // With all threads busy and the queue full, further calls are rejected right away.
+    // Not an Executor bean, that would replace Spring Boot's applicationTaskExecutor.
+    @Bean
+    public ThreadPoolBulkhead stripeBulkhead(MeterRegistry meterRegistry,
+                                             @Value("${stripe.executor.poolSize}") int poolSize,
+                                             @Value("${stripe.executor.queueCapacity}") int queueCapacity) {
+        ThreadPoolBulkheadRegistry registry = ThreadPoolBulkheadRegistry.of(ThreadPoolBulkheadConfig.custom()
+                .coreThreadPoolSize(poolSize)
+                .maxThreadPoolSize(poolSize)
+                .queueCapacity(queueCapacity)
+                .build());
+        TaggedThreadPoolBulkheadMetrics.ofThreadPoolBulkheadRegistry(registry).bindTo(meterRegistry);
+
+        ThreadPoolBulkhead bulkhead = registry.bulkhead(STRIPE);
+        // The bulkhead metrics only show the queue, rejections are counted here
+        Counter rejected = Counter.builder("resilience4j.bulkhead.rejected.calls")
+                .tag("name", STRIPE)
+                .description("Calls rejected because the bulkhead was full")
+                .register(meterRegistry);
+        bulkhead.getEventPublisher().onCallRejected(event -> rejected.increment());
+        return bulkhead;
+    }
+
+    // Stops calling Stripe while most calls fail or time out, and probes it again after the wait duration.
+    // Bulkhead rejections and invalid requests say nothing about Stripe's health and are not counted.
+    @Bean
+    public CircuitBreaker stripeCircuitBreaker(MeterRegistry meterRegistry,
+                                               @Value("${stripe.circuitBreaker.failureRateThreshold}") float failureRateThreshold,
+                                               @Value("${stripe.circuitBreaker.slidingWindowSize}") int slidingWindowSize,
+                                               @Value("${stripe.circuitBreaker.minimumNumberOfCalls}") int minimumNumberOfCalls,
+                                               @Value("${stripe.circuitBreaker.waitDurationInOpenStateMillis}") long waitDurationInOpenStateMillis,
+                                               @Value("${stripe.circuitBreaker.permittedCallsInHalfOpenState}") int permittedCallsInHalfOpenState) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .waitDurationInOpenState(Duration.ofMillis(waitDurationInOpenStateMillis))
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .recordException(e -> !(e instanceof PaymentGatewayException && e.getCause() instanceof InvalidRequestException))
+                .ignoreExceptions(BulkheadFullException.class)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker(STRIPE);
+    }
+}
@@ -69,8 +69,8 @@ public class AuthController {
     }
 
     @PostMapping("/signout")
-    public ResponseEntity<?> signout() {
-        ResponseCookie jwtCookie = jwtUtils.generateCleanJwtCookie();
+    public ResponseEntity<?> signout(Authentication authentication) {
+        ResponseCookie jwtCookie = authService.logoutUser(authentication);
         return ResponseEntity.ok()
                 .header(HttpHeaders.SET_COOKIE, jwtCookie.toString())
                 .body("You have been signed out");
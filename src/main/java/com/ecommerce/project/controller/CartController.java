@@ -1,10 +1,7 @@
 package com.ecommerce.project.controller;
 
-import com.ecommerce.project.exceptions.ResourceNotFoundException;
-import com.ecommerce.project.model.Cart;
 import com.ecommerce.project.payload.CartDto;
 import com.ecommerce.project.payload.CartItemDto;
-import com.ecommerce.project.repositories.CartRepository;
 import com.ecommerce.project.service.CartService;
 import com.ecommerce.project.util.AuthUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,8 +19,6 @@ public class CartController {
     private CartService cartService;
     @Autowired
     private AuthUtil authUtil;
-    @Autowired
-    private CartRepository cartRepository;
 
     @PostMapping("/cart")
     public ResponseEntity<String> createOrUpdateCart(@RequestBody List<CartItemDto> cartItems) {
@@ -47,11 +42,7 @@ public class CartController {
     @GetMapping("/cart")
     public ResponseEntity<CartDto> getCartsByUser() {
         String userEmail = authUtil.loggedInEmail();
-        Cart cart = cartRepository.findCartByEmail(userEmail);
-        if (cart == null) {
-            throw new ResourceNotFoundException("Cart", "email", userEmail);
-        }
-        CartDto cartDto = cartService.getCart(userEmail, cart.getCartId());
+        CartDto cartDto = cartService.getUserCart(userEmail);
         return ResponseEntity.ok(cartDto);
     }
 
@@ -0,0 +1,38 @@
+package com.ecommerce.project.controller;
+
+import com.ecommerce.project.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    // export is one of products, orders or carts
+    @GetMapping("/admin/export/{export}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable String export,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format
+    ) {
+        exportService.checkExport(export, format);
+        StreamingResponseBody body = out -> exportService.export(export, format, out);
+        MediaType contentType = format.equals("csv") ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(export + "." + format).build().toString())
+                .body(body);
+    }
+}
@@ -3,11 +3,10 @@ package com.ecommerce.project.controller;
 import com.ecommerce.project.payload.OrderDTO;
 import com.ecommerce.project.payload.OrderRequestDTO;
 import com.ecommerce.project.payload.StripePaymentDto;
+import com.ecommerce.project.service.IdempotencyService;
 import com.ecommerce.project.service.OrderService;
 import com.ecommerce.project.service.StripeService;
 import com.ecommerce.project.util.AuthUtil;
-import com.stripe.exception.StripeException;
-import com.stripe.model.PaymentIntent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +14,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api")
 public class OrderController {
@@ -29,11 +31,26 @@ public class OrderController {
     @Autowired
     private StripeService stripeService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // With an Idempotency-Key header a retried checkout returns the order placed by the first attempt
     @PostMapping("/order/users/payments/{paymentMethod}")
-    public ResponseEntity<OrderDTO> orderProducts(@PathVariable String paymentMethod, @RequestBody OrderRequestDTO orderRequestDTO) {
+    public ResponseEntity<OrderDTO> orderProducts(@PathVariable String paymentMethod, @RequestBody OrderRequestDTO orderRequestDTO,
+                                                  @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         String emailId = authUtil.loggedInEmail();
         System.out.println("orderRequestDTO DATA: " + orderRequestDTO);
-        OrderDTO order = orderService.placeOrder(
+        if (idempotencyKey == null) {
+            return new ResponseEntity<>(placeOrder(emailId, paymentMethod, orderRequestDTO), HttpStatus.CREATED);
+        }
+        OrderDTO order = idempotencyService.execute(idempotencyKey, emailId,
+                List.of(paymentMethod, orderRequestDTO), OrderDTO.class,
+                () -> placeOrder(emailId, paymentMethod, orderRequestDTO));
+        return new ResponseEntity<>(order, HttpStatus.CREATED);
+    }
+
+    private OrderDTO placeOrder(String emailId, String paymentMethod, OrderRequestDTO orderRequestDTO) {
+        return orderService.placeOrder(
                 emailId,
                 orderRequestDTO.getAddressId(),
                 paymentMethod,
@@ -42,13 +59,13 @@ public class OrderController {
                 orderRequestDTO.getPgStatus(),
                 orderRequestDTO.getPgResponseMessage()
         );
-        return new ResponseEntity<>(order, HttpStatus.CREATED);
     }
 
+    // Asynchronous: the servlet thread is released while the payment executor talks to Stripe
     @PostMapping("/order/stripe-client-secret")
-    public ResponseEntity<String> createStripeClientSecret(@RequestBody StripePaymentDto stripePaymentDto) throws StripeException {
+    public CompletableFuture<ResponseEntity<String>> createStripeClientSecret(@RequestBody StripePaymentDto stripePaymentDto) {
         LOG.info(String.format("Stripe Payment Data: %s", stripePaymentDto));
-        PaymentIntent paymentIntent = stripeService.paymentIntent(stripePaymentDto);
-        return new ResponseEntity<>(paymentIntent.getClientSecret(), HttpStatus.CREATED);
+        return stripeService.paymentIntent(stripePaymentDto)
+                .thenApply(paymentIntent -> new ResponseEntity<>(paymentIntent.getClientSecret(), HttpStatus.CREATED));
     }
 }
\ No newline at end of file
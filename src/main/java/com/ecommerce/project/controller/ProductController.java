@@ -1,16 +1,21 @@
 package com.ecommerce.project.controller;
 
 import com.ecommerce.project.payload.ProductDto;
+import com.ecommerce.project.payload.ProductImportResult;
 import com.ecommerce.project.payload.ProductResponse;
+import com.ecommerce.project.service.ProductImportService;
+import com.ecommerce.project.service.ProductPageCache;
 import com.ecommerce.project.service.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 
 import static com.ecommerce.project.config.AppConstants.*;
@@ -22,12 +27,29 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
     @PostMapping("/admin/categories/{categoryId}/product")
     public ResponseEntity<ProductDto> addProduct(@Valid @RequestBody ProductDto productDto, @PathVariable Long categoryId) {
         ProductDto newProductDto = productService.addProduct(categoryId, productDto);
         return new ResponseEntity<>(newProductDto, HttpStatus.CREATED);
     }
 
+    // The request body is the raw CSV (with header line) or NDJSON file, it is parsed while it is read
+    @PostMapping("/admin/products/import")
+    public ResponseEntity<ProductImportResult> importProducts(
+            InputStream body,
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestParam(value = "chunkSize", required = false) Integer chunkSize
+    ) {
+        ProductImportResult result = productImportService.importProducts(body, format, chunkSize);
+        return ResponseEntity.ok(result);
+    }
+
     @PutMapping("/admin/products/{productId}")
     public ResponseEntity<ProductDto> updateProduct(@Valid @RequestBody ProductDto productDto, @PathVariable Long productId) {
         ProductDto updatedProductDto = productService.updateProduct(productId, productDto);
@@ -35,16 +57,27 @@ public class ProductController {
     }
 
     @GetMapping("/public/products")
-    public ResponseEntity<ProductResponse> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
             @RequestParam(value = "keyword", required = false) String keyword,
             @RequestParam(value = "category", required = false) String category,
             @RequestParam(value = "pageNumber", defaultValue = PAGE_NUMBER) Integer pageNumber,
             @RequestParam(value = "pageSize", defaultValue = PAGE_SIZE) Integer pageSize,
             @RequestParam(value = "sortBy", defaultValue = SORT_PRODUCTS_BY) String sortBy,
-            @RequestParam(value = "sortOrder", defaultValue = SORT_DIR) String sortOrder
+            @RequestParam(value = "sortOrder", defaultValue = SORT_DIR) String sortOrder,
+            // Presence of 'after' (even empty, for the first page) switches to cursor paging
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal
     ) {
-        ProductResponse products = productService.getAllProducts(keyword, category, pageNumber, pageSize, sortBy, sortOrder);
-        return ResponseEntity.ok(products);
+        if (after != null) {
+            ProductResponse products =
+                    productService.getAllProductsByCursor(keyword, category, after, pageSize, sortBy, sortOrder, withTotal);
+            return ResponseEntity.ok(products);
+        }
+        // Offset pages are served as the cached JSON of their ProductResponse
+        byte[] products = productPageCache.get(
+                ProductPageCache.Query.listing(keyword, category, pageNumber, pageSize, sortBy, sortOrder),
+                () -> productService.getAllProductsJson(keyword, category, pageNumber, pageSize, sortBy, sortOrder));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(products);
     }
 
     @DeleteMapping("/admin/products/{productId}")
@@ -54,17 +87,24 @@ public class ProductController {
     }
 
     @GetMapping("/public/categories/{categoryId}/products")
-    public ResponseEntity<ProductResponse> getProductsByCategory(
+    public ResponseEntity<?> getProductsByCategory(
             @PathVariable Long categoryId,
             @RequestParam(value = "pageNumber", defaultValue = PAGE_NUMBER) Integer pageNumber,
             @RequestParam(value = "pageSize", defaultValue = PAGE_SIZE) Integer pageSize,
             @RequestParam(value = "sortBy", defaultValue = SORT_PRODUCTS_BY) String sortBy,
-            @RequestParam(value = "sortOrder", defaultValue = SORT_DIR) String sortOrder
+            @RequestParam(value = "sortOrder", defaultValue = SORT_DIR) String sortOrder,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal
     ) {
-        ProductResponse productResponse = productService.findProductsByCategory(categoryId, pageNumber, pageSize, sortBy, sortOrder);
-
-
-        return ResponseEntity.ok(productResponse);
+        if (after != null) {
+            ProductResponse productResponse =
+                    productService.findProductsByCategoryCursor(categoryId, after, pageSize, sortBy, sortOrder, withTotal);
+            return ResponseEntity.ok(productResponse);
+        }
+        byte[] productResponse = productPageCache.get(
+                ProductPageCache.Query.category(categoryId, pageNumber, pageSize, sortBy, sortOrder),
+                () -> productService.findProductsByCategoryJson(categoryId, pageNumber, pageSize, sortBy, sortOrder));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(productResponse);
     }
 
     @GetMapping("/public/products/keyword/{keyword}")
@@ -72,10 +112,14 @@ public class ProductController {
             @PathVariable String keyword,
             @RequestParam(value = "pageNumber", defaultValue = PAGE_NUMBER) Integer pageNumber,
             @RequestParam(value = "pageSize", defaultValue = PAGE_SIZE) Integer pageSize,
-            @RequestParam(value = "sortBy", defaultValue = SORT_PRODUCTS_BY) String sortBy,
-            @RequestParam(value = "sortOrder", defaultValue = SORT_DIR) String sortOrder
+            @RequestParam(value = "sortBy", defaultValue = SORT_SEARCH_BY) String sortBy,
+            @RequestParam(value = "sortOrder", defaultValue = SORT_DIR) String sortOrder,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal
     ) {
-        ProductResponse products = productService.findProductsByKeyword(keyword, pageNumber, pageSize, sortBy, sortOrder);
+        ProductResponse products = after != null
+                ? productService.findProductsByKeywordCursor(keyword, after, pageSize, sortBy, sortOrder, withTotal)
+                : productService.findProductsByKeyword(keyword, pageNumber, pageSize, sortBy, sortOrder);
         return ResponseEntity.ok(products);
     }
 
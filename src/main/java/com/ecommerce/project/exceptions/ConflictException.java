@@ -0,0 +1,9 @@
+package com.ecommerce.project.exceptions;
+
+// The request conflicts with another one still being processed (409)
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
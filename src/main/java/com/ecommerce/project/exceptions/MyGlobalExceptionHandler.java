@@ -2,6 +2,7 @@ package com.ecommerce.project.exceptions;
 
 import com.ecommerce.project.payload.ApiResponse;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -47,6 +48,30 @@ public class MyGlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(apiResponse);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiResponse> myOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        ApiResponse apiResponse = new ApiResponse("The resource was changed concurrently, please try again", false);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(apiResponse);
+    }
+
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiResponse> myConflictException(ConflictException ex) {
+        ApiResponse apiResponse = new ApiResponse(ex.getMessage(), false);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(apiResponse);
+    }
+
+    @ExceptionHandler(PaymentGatewayException.class)
+    public ResponseEntity<ApiResponse> myPaymentGatewayException(PaymentGatewayException ex) {
+        ApiResponse apiResponse = new ApiResponse(ex.getMessage(), false);
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(apiResponse);
+    }
+
+    @ExceptionHandler(PaymentUnavailableException.class)
+    public ResponseEntity<ApiResponse> myPaymentUnavailableException(PaymentUnavailableException ex) {
+        ApiResponse apiResponse = new ApiResponse(ex.getMessage(), false);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(apiResponse);
+    }
+
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<ApiResponse> myApiException(ApiException ex) {
         ApiResponse apiResponse = new ApiResponse(ex.getMessage(), false);
@@ -0,0 +1,9 @@
+package com.ecommerce.project.exceptions;
+
+// The payment provider failed or did not answer in time (502)
+public class PaymentGatewayException extends RuntimeException {
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
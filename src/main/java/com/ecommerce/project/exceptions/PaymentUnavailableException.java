@@ -0,0 +1,9 @@
+package com.ecommerce.project.exceptions;
+
+// The payment provider is not called at all: its circuit breaker is open or too many payments are in flight (503)
+public class PaymentUnavailableException extends RuntimeException {
+
+    public PaymentUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
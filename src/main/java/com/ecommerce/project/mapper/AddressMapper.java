@@ -0,0 +1,16 @@
+package com.ecommerce.project.mapper;
+
+import com.ecommerce.project.model.Address;
+import com.ecommerce.project.payload.AddressDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface AddressMapper {
+
+    AddressDTO toDto(Address address);
+
+    @Mapping(target = "user", ignore = true)
+    Address toEntity(AddressDTO addressDTO);
+}
@@ -0,0 +1,27 @@
+package com.ecommerce.project.mapper;
+
+import com.ecommerce.project.model.Cart;
+import com.ecommerce.project.model.CartItem;
+import com.ecommerce.project.payload.CartDto;
+import com.ecommerce.project.payload.ProductDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public abstract class CartMapper {
+
+    @Autowired
+    protected ProductMapper productMapper;
+
+    @Mapping(target = "products", source = "cartItems")
+    public abstract CartDto toDto(Cart cart);
+
+    // A cart lists its products with the quantity in the cart instead of the stock quantity
+    protected ProductDto toProductDto(CartItem cartItem) {
+        ProductDto productDto = productMapper.toDto(cartItem.getProduct());
+        productDto.setQuantity(cartItem.getQuantity());
+        return productDto;
+    }
+}
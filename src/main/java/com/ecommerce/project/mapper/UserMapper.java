@@ -0,0 +1,15 @@
+package com.ecommerce.project.mapper;
+
+import com.ecommerce.project.model.User;
+import com.ecommerce.project.payload.UserDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, uses = CartMapper.class)
+public interface UserMapper {
+
+    // A user has a list of addresses, the single address of the DTO was never filled
+    @Mapping(target = "address", ignore = true)
+    UserDTO toDto(User user);
+}
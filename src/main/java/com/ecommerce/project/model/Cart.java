@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,5 +28,16 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, orphanRemoval = true)
     private List<CartItem> cartItems = new ArrayList<>();
 
-    private Double totalPrice = 0.0;
+    // Optimistic lock, also bumped when only the cart items change (see CartRepository.findCartByEmailForWrite)
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
+    // Derived from the cart items with exact decimal math, so there is no stored total to keep in sync
+    public BigDecimal getTotalPrice() {
+        return cartItems.stream()
+                .map(item -> BigDecimal.valueOf(item.getProductPrice()).multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .setScale(2, RoundingMode.HALF_UP);
+    }
 }
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Data
@@ -12,7 +13,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class CartItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_seq")
+    @SequenceGenerator(name = "cart_item_seq", allocationSize = 50)
     private Long cartItemId;
 
     @ManyToOne
@@ -26,4 +28,8 @@ public class CartItem {
     private Integer quantity;
     private double discount;
     private double productPrice;
+
+    @Version
+    @ColumnDefault("0")
+    private long version;
 }
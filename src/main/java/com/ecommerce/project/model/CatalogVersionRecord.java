@@ -0,0 +1,24 @@
+package com.ecommerce.project.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The single row holding the catalog version shared by all instances, see CatalogVersion
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "catalog_version")
+public class CatalogVersionRecord {
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    private long version;
+
+    public CatalogVersionRecord(long version) {
+        this.id = ID;
+        this.version = version;
+    }
+}
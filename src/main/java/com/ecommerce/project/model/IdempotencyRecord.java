@@ -0,0 +1,62 @@
+package com.ecommerce.project.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+// Outcome of a request sent with an Idempotency-Key header, replayed when the client retries the request
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "idempotency_records", indexes = @Index(name = "idx_idempotency_records_expires_at", columnList = "expiresAt"))
+public class IdempotencyRecord {
+
+    public enum Status {
+        IN_PROGRESS, COMPLETED
+    }
+
+    @Id
+    @Column(length = 100)
+    private String idempotencyKey;
+
+    // Email of the user who sent the key, keys are not shared between users
+    @Column(nullable = false)
+    private String owner;
+
+    // SHA-256 of the request, a key must not be reused for a different request
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    // Response body as JSON, set once the request completed
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String response;
+
+    private Instant createdAt;
+
+    // In progress: lease of the request being processed, completed: how long the response is replayed
+    private Instant expiresAt;
+
+    // Random id of the claim, so a request only completes or frees its own claim and not one taken over after its
+    // lease expired
+    @Column(length = 36)
+    private String leaseId;
+
+    public IdempotencyRecord(String idempotencyKey, String leaseId, String owner, String requestHash, Instant createdAt,
+                             Instant expiresAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.leaseId = leaseId;
+        this.owner = owner;
+        this.requestHash = requestHash;
+        this.status = Status.IN_PROGRESS;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ecommerce.project.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+// Side effect of a business transaction, written in that transaction and delivered afterwards by OutboxDispatcher
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "outbox_events", indexes = @Index(name = "idx_outbox_events_available_at", columnList = "availableAt"))
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", allocationSize = 50)
+    private Long eventId;
+
+    @Column(nullable = false, length = 100)
+    private String eventType;
+
+    private Long aggregateId;
+
+    // Event body as JSON
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // Not delivered before this: pushed forward while a dispatcher holds the event and after a failed attempt
+    @Column(nullable = false)
+    private Instant availableAt;
+
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public OutboxEvent(String eventType, Long aggregateId, String payload, Instant createdAt) {
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+        this.availableAt = createdAt;
+    }
+}
@@ -5,22 +5,30 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// Stock is decremented with plain JDBC, InventoryServiceImpl evicts those products itself
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "products")
+@Table(name = "products", indexes = @Index(name = "idx_products_category_name", columnList = "category_id, productName"))
 @ToString
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // Same sequence the former AUTO strategy used, so existing ids carry on
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", allocationSize = 50)
     private Long productId;
     @NotBlank
     @Size(min = 3, message = "Product must have at least 3 charecters")
@@ -33,15 +41,26 @@ public class Product {
     private double discount; // 25%
     private double specialPrice; // 75
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    // Optimistic lock, also bumped by InventoryServiceImpl's stock decrements. ProductJsonWriter keys the JSON it
+    // keeps of a product by it.
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
+    // Catalog reads only need the product columns, the associations are loaded on demand or through an entity graph
+    @ToString.Exclude
+    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
 
-    @ManyToOne
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id")
     private User user;
 
-
-    @OneToMany(mappedBy = "product", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.EAGER)
+    // Cart items referencing this product, only needed when the product is repriced or removed
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "product", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE})
     private List<CartItem> products = new ArrayList<>();
 }
@@ -6,8 +6,12 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+// Roles are only ever inserted
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "roles")
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
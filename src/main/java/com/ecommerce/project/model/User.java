@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -44,6 +45,18 @@ public class User {
     @Column(name = "password")
     private String password;
 
+    // Bumped whenever the roles change; JWTs carrying an older version are rejected
+    @ColumnDefault("0")
+    @Column(name = "token_version")
+    private long tokenVersion;
+
+    // Stripe customer of this user and a hash of the address last sent to it, see StripeServiceImpl
+    @Column(name = "stripe_customer_id")
+    private String stripeCustomerId;
+
+    @Column(name = "stripe_address_hash", length = 64)
+    private String stripeAddressHash;
+
     @Getter
     @Setter
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.EAGER)
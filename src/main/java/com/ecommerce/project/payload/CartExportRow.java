@@ -0,0 +1,21 @@
+package com.ecommerce.project.payload;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One row per cart item, the cart columns repeat for every item of the cart
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"cartId", "email", "cartItemId", "productId", "quantity", "discount", "productPrice"})
+public class CartExportRow {
+    private Long cartId;
+    private String email;
+    private Long cartItemId;
+    private Long productId;
+    private Integer quantity;
+    private Double discount;
+    private Double productPrice;
+}
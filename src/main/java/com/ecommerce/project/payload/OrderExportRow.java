@@ -0,0 +1,28 @@
+package com.ecommerce.project.payload;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// One row per order item, the order columns repeat for every item of the order
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"orderId", "email", "orderDate", "orderStatus", "totalAmount", "addressId", "orderItemId", "productId",
+        "quantity", "discount", "orderedProductPrice"})
+public class OrderExportRow {
+    private Long orderId;
+    private String email;
+    private LocalDate orderDate;
+    private String orderStatus;
+    private Double totalAmount;
+    private Long addressId;
+    private Long orderItemId;
+    private Long productId;
+    private Integer quantity;
+    private Double discount;
+    private Double orderedProductPrice;
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.project.payload;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Flat export row, built by a JPQL constructor expression so no entities end up in the persistence context
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"productId", "productName", "description", "image", "quantity", "price", "discount", "specialPrice",
+        "categoryId", "categoryName"})
+public class ProductExportRow {
+    private Long productId;
+    private String productName;
+    private String description;
+    private String image;
+    private Integer quantity;
+    private Double price;
+    private Double discount;
+    private Double specialPrice;
+    private Long categoryId;
+    private String categoryName;
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.project.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportError {
+    // 1-based data row number, the CSV header is not counted
+    private long row;
+    private String productName;
+    private String message;
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.project.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResult {
+    private long rowsRead;
+    private long imported;
+    private long duplicates;
+    private long failed;
+    // Only the first errors are reported, see failed for the total
+    private List<ProductImportError> errors = new ArrayList<>();
+    private long durationMs;
+    private double rowsPerSecond;
+}
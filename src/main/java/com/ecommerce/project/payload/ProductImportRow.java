@@ -0,0 +1,22 @@
+package com.ecommerce.project.payload;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One CSV line or NDJSON object of a bulk product import. The category is given by id or by name.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductImportRow {
+    private Long categoryId;
+    private String categoryName;
+    private String productName;
+    private String description;
+    private String image;
+    private Integer quantity;
+    private Double price;
+    private Double discount;
+}
@@ -18,4 +18,6 @@ public class ProductResponse {
     private Long totalElements;
     private Integer totalPages;
     private boolean lastPage;
+    // Only set in cursor mode: pass as 'after' to fetch the next page, null on the last page
+    private String nextCursor;
 }
@@ -0,0 +1,18 @@
+package com.ecommerce.project.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResult {
+    // Matching product ids in ranking order
+    private List<Long> productIds;
+    private Long totalHits;
+    // Cursor of the last hit when more hits follow, null otherwise
+    private String nextCursor;
+}
@@ -0,0 +1,5 @@
+package com.ecommerce.project.payload;
+
+// Id and version of a product, built by a JPQL constructor expression to compare the search index with the database
+public record ProductVersion(Long productId, long version) {
+}
@@ -27,4 +27,10 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Transactional
     @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
     void deleteAllByCartId(@Param("cartId") Long cartId);
+
+    // Bumps the version like a Hibernate update would, so a cart change that read the old price fails and is retried
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CartItem ci SET ci.productPrice = :price, ci.discount = :discount, ci.version = ci.version + 1 "
+            + "WHERE ci.product.id = :productId")
+    int repriceProduct(@Param("productId") Long productId, @Param("price") double price, @Param("discount") double discount);
 }
@@ -1,11 +1,19 @@
 package com.ecommerce.project.repositories;
 
+import com.ecommerce.project.config.AppConstants;
 import com.ecommerce.project.model.Cart;
+import com.ecommerce.project.payload.CartExportRow;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
@@ -13,9 +21,25 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     @Query("SELECT c FROM Cart c WHERE c.user.email = ?1")
     Cart findCartByEmail(String email);
 
+    // Everything an order is built from in one query
+    @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.cartItems ci LEFT JOIN FETCH ci.product WHERE c.user.email = ?1")
+    Cart findCartWithItemsByEmail(String email);
+
+    // Increments the cart version on commit even if only its items changed, so concurrent cart changes conflict
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT c FROM Cart c WHERE c.user.email = ?1")
+    Cart findCartByEmailForWrite(String email);
+
     @Query("SELECT c FROM Cart c WHERE c.user.email = ?1 AND c.id = ?2")
     Cart findCartByEmailAndCartId(String userEmail, Long cartId);
 
     @Query("SELECT c FROM Cart c JOIN FETCH c.cartItems ci JOIN FETCH ci.product p WHERE p.id = ?1")
     List<Cart> findCartsByProductId(Long productId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE))
+    @Query("select new com.ecommerce.project.payload.CartExportRow(c.cartId, u.email, ci.cartItemId, p.productId, "
+            + "ci.quantity, ci.discount, ci.productPrice) "
+            + "from Cart c left join c.user u left join c.cartItems ci left join ci.product p "
+            + "order by c.cartId, ci.cartItemId")
+    Stream<CartExportRow> streamExportRows();
 }
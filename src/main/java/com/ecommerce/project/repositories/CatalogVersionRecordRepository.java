@@ -0,0 +1,24 @@
+package com.ecommerce.project.repositories;
+
+import com.ecommerce.project.model.CatalogVersionRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogVersionRecordRepository extends JpaRepository<CatalogVersionRecord, Long> {
+
+    // A scalar, not the entity: the persistence context must not hide a version committed by another instance
+    @Query("SELECT c.version FROM CatalogVersionRecord c WHERE c.id = " + CatalogVersionRecord.ID)
+    Optional<Long> findVersion();
+
+    // In the caller's transaction when there is one, the row stays locked until it ends
+    @Modifying
+    @Transactional
+    @Query("UPDATE CatalogVersionRecord c SET c.version = c.version + 1 WHERE c.id = " + CatalogVersionRecord.ID)
+    int increment();
+}
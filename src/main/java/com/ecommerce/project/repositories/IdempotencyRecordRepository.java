@@ -0,0 +1,56 @@
+package com.ecommerce.project.repositories;
+
+import com.ecommerce.project.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Projection instead of the entity: requests waiting for another one must see its commit, not their
+    // persistence context
+    interface State {
+        String getOwner();
+
+        String getRequestHash();
+
+        IdempotencyRecord.Status getStatus();
+
+        String getResponse();
+
+        Instant getExpiresAt();
+    }
+
+    @Query("SELECT r.owner AS owner, r.requestHash AS requestHash, r.status AS status, r.response AS response, "
+            + "r.expiresAt AS expiresAt FROM IdempotencyRecord r WHERE r.idempotencyKey = :key")
+    Optional<State> findState(@Param("key") String key);
+
+    // Completes the claim in the caller's transaction, unless its lease has expired or another claim replaced it
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :status, r.response = :response, r.expiresAt = :expiresAt "
+            + "WHERE r.idempotencyKey = :key AND r.leaseId = :leaseId AND r.expiresAt >= :now")
+    int complete(@Param("key") String key, @Param("leaseId") String leaseId, @Param("status") IdempotencyRecord.Status status,
+                 @Param("response") String response, @Param("expiresAt") Instant expiresAt, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.leaseId = :leaseId")
+    int deleteClaim(@Param("key") String key, @Param("leaseId") String leaseId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("key") String key, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
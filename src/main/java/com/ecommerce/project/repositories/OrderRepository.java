@@ -1,11 +1,25 @@
 package com.ecommerce.project.repositories;
 
 
+import com.ecommerce.project.config.AppConstants;
 import com.ecommerce.project.model.Order;
+import com.ecommerce.project.payload.OrderExportRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE))
+    @Query("select new com.ecommerce.project.payload.OrderExportRow(o.orderId, o.email, o.orderDate, o.orderStatus, "
+            + "o.totalAmount, a.addressId, oi.orderItemId, p.productId, oi.quantity, oi.discount, oi.orderedProductPrice) "
+            + "from Order o left join o.address a left join o.orderItems oi left join oi.product p "
+            + "order by o.orderId, oi.orderItemId")
+    Stream<OrderExportRow> streamExportRows();
 }
\ No newline at end of file
@@ -1,23 +1,59 @@
 package com.ecommerce.project.repositories;
 
+import com.ecommerce.project.config.AppConstants;
 import com.ecommerce.project.model.Category;
 import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductExportRow;
+import com.ecommerce.project.payload.ProductVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     Page<Product> findByCategoryOrderByPriceAsc(Category category, Pageable pageable);
 
+    // For readers that need the category name of every product (search index rebuild)
+    @EntityGraph(attributePaths = "category")
+    Page<Product> findAllWithCategoryBy(Pageable pageable);
+
+    @EntityGraph(attributePaths = "category")
+    List<Product> findAllWithCategoryByProductIdIn(Collection<Long> productIds);
+
+    @Query("select new com.ecommerce.project.payload.ProductVersion(p.productId, p.version) from Product p")
+    List<ProductVersion> findAllVersions();
+
     List<Product> findProductsByProductNameLikeIgnoreCase(String productName);
 
     Page<Product> findProductsByProductNameContainingIgnoreCase(String productName, Pageable pageable);
 
     List<Product> findProductsByDescriptionLikeIgnoreCase(String description);
+
+    boolean existsByCategoryCategoryIdAndProductName(Long categoryId, String productName);
+
+    // Which of the given names already exist in the category, served by the (category_id, product_name) index
+    @Query("select p.productName from Product p where p.category.categoryId = :categoryId and p.productName in :productNames")
+    List<String> findExistingProductNames(@Param("categoryId") Long categoryId, @Param("productNames") Collection<String> productNames);
+
+    @Query("select distinct p.category.categoryId from Product p where p.productId in :productIds")
+    List<Long> findCategoryIdsByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE))
+    @Query("select new com.ecommerce.project.payload.ProductExportRow(p.productId, p.productName, p.description, p.image, "
+            + "p.quantity, p.price, p.discount, p.specialPrice, c.categoryId, c.categoryName) "
+            + "from Product p left join p.category c order by p.productId")
+    Stream<ProductExportRow> streamExportRows();
 }
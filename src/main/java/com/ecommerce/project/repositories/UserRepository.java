@@ -5,9 +5,11 @@ import com.ecommerce.project.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -19,7 +21,28 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmail(String email);
 
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.userId = :userId")
+    Optional<Long> findTokenVersionByUserId(@Param("userId") Long userId);
+
     @Query("SELECT u FROM User u JOIN u.roles r WHERE r.roleName = :role")
     Page<User> findByRoleName(@Param("role") AppRole role, Pageable pageable);
 
+    interface StripeCustomer {
+        Long getUserId();
+
+        String getStripeCustomerId();
+
+        String getStripeAddressHash();
+    }
+
+    @Query("SELECT u.userId AS userId, u.stripeCustomerId AS stripeCustomerId, u.stripeAddressHash AS stripeAddressHash "
+            + "FROM User u WHERE u.email = :email")
+    Optional<StripeCustomer> findStripeCustomerByEmail(@Param("email") String email);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.stripeCustomerId = :customerId, u.stripeAddressHash = :addressHash WHERE u.userId = :userId")
+    void updateStripeCustomer(@Param("userId") Long userId, @Param("customerId") String customerId,
+                              @Param("addressHash") String addressHash);
+
 }
@@ -7,7 +7,10 @@ import com.ecommerce.project.repositories.RoleRepository;
 import com.ecommerce.project.repositories.UserRepository;
 import com.ecommerce.project.security.jwt.AuthEntryPointJwt;
 import com.ecommerce.project.security.jwt.AuthTokenFilter;
+import com.ecommerce.project.security.services.TokenVersionCache;
+import com.ecommerce.project.security.services.UserDetailsCache;
 import com.ecommerce.project.security.services.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
@@ -38,6 +41,12 @@ public class WebSecurityConfig {
     private UserDetailsServiceImpl userDetailsService;
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    @Autowired
+    private TokenVersionCache tokenVersionCache;
 
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilterBean() {
@@ -71,7 +80,9 @@ public class WebSecurityConfig {
                                 session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests((
                         requests) ->
-                        requests.requestMatchers("/api/auth/**").permitAll()
+                        // Async dispatches (streamed responses) continue a request that was already authorized
+                        requests.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                                .requestMatchers("/api/auth/**").permitAll()
                                 .requestMatchers("/v3/api-docs/**").permitAll()
                                 .requestMatchers("/v3/api-docs.yaml").permitAll()
                                 .requestMatchers("/swagger-ui.html").permitAll()
@@ -80,10 +91,10 @@ public class WebSecurityConfig {
                                 .requestMatchers("/webjars/**").permitAll()
                                 .requestMatchers("/h2-console/**").permitAll()
                                 // Actuator endpoints: permit root, health & info; require ADMIN for other actuator endpoints
-//                                .requestMatchers("/actuator", "/actuator/").permitAll()
-//                                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
-//                                .requestMatchers("/actuator/info", "/actuator/info/**").permitAll()
-//                                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                                .requestMatchers("/actuator", "/actuator/").permitAll()
+                                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                                .requestMatchers("/actuator/info", "/actuator/info/**").permitAll()
+                                .requestMatchers("/actuator/**").hasRole("ADMIN")
                                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                                 .requestMatchers("/api/seller/**").hasAnyRole("ADMIN", "SELLER")
                                 //.requestMatchers("/api/admin/**").permitAll()
@@ -115,7 +126,7 @@ public class WebSecurityConfig {
     }
 
     @Bean
-    public CommandLineRunner initData(RoleRepository roleRepository, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public CommandLineRunner initData(RoleRepository roleRepository, PasswordEncoder passwordEncoder) {
         return args -> {
             // Retrieve or create roles
             Role userRole = roleRepository.findByRoleName(AppRole.ROLE_USER)
@@ -158,21 +169,23 @@ public class WebSecurityConfig {
             }
 
             // Update roles for existing users
-            userRepository.findByUsername("user1").ifPresent(user -> {
-                user.setRoles(userRoles);
-                userRepository.save(user);
-            });
-
-            userRepository.findByUsername("seller1").ifPresent(seller -> {
-                seller.setRoles(sellerRoles);
-                userRepository.save(seller);
-            });
-
-            userRepository.findByUsername("admin").ifPresent(admin -> {
-                admin.setRoles(adminRoles);
-                userRepository.save(admin);
-            });
+            userRepository.findByUsername("user1").ifPresent(user -> updateRoles(user, userRoles));
+            userRepository.findByUsername("seller1").ifPresent(seller -> updateRoles(seller, sellerRoles));
+            userRepository.findByUsername("admin").ifPresent(admin -> updateRoles(admin, adminRoles));
+
+            // Roles may have changed, drop any principal cached with the old authorities
+            userDetailsCache.evictAll();
         };
     }
 
+    private void updateRoles(User user, Set<Role> roles) {
+        if (!roles.equals(user.getRoles())) {
+            // Revoke JWTs that still carry the old roles as claims
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            tokenVersionCache.evict(user.getUserId());
+        }
+        user.setRoles(roles);
+        userRepository.save(user);
+    }
+
 }
@@ -1,6 +1,9 @@
 package com.ecommerce.project.security.jwt;
 
-import com.ecommerce.project.security.services.UserDetailsServiceImpl;
+import com.ecommerce.project.security.services.TokenVersionCache;
+import com.ecommerce.project.security.services.UserDetailsCache;
+import com.ecommerce.project.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,10 +11,10 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -27,7 +30,13 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private TokenVersionCache tokenVersionCache;
+
+    @Value("${spring.app.jwtClaimsAuth}")
+    private boolean claimsAuth;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -36,9 +45,9 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         LOG.debug("AuthTokenFilter called for URI: {}", request.getRequestURI());
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJWTToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+            UserDetails userDetails = claims != null ? resolveUserDetails(claims) : null;
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -54,6 +63,21 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolveUserDetails(Claims claims) {
+        if (claimsAuth) {
+            UserDetailsImpl userDetails = jwtUtils.getUserDetailsFromClaims(claims);
+            if (userDetails != null) {
+                if (tokenVersionCache.isCurrent(userDetails.getId(), userDetails.getTokenVersion())) {
+                    return userDetails;
+                }
+                LOG.debug("JWT of {} carries a revoked token version", userDetails.getUsername());
+                return null;
+            }
+        }
+        // Tokens without user claims are resolved through the (cached) users table
+        return userDetailsCache.getOrLoad(claims.getSubject());
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String jwt = jwtUtils.getJwtFromCookies(request);
         if (jwt != null) {
@@ -1,19 +1,27 @@
 package com.ecommerce.project.security.jwt;
 
 import com.ecommerce.project.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.WebUtils;
@@ -21,12 +29,20 @@ import org.springframework.web.util.WebUtils;
 import javax.crypto.SecretKey;
 import java.security.Key;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component
 public class JwtUtils {
     public static final Logger LOG = LoggerFactory.getLogger(JwtUtils.class);
     public static final int MAX_AGE_SECONDS_ONE_DAY = 24 * 60 * 60;
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
     @Value("${spring.ecom.app.jwtCookieName}")
     private String jwtCookie;
     @Value("${spring.app.jwtExpirationMs}")
@@ -37,6 +53,54 @@ public class JwtUtils {
     private boolean secureCookie;
     @Value("${spring.app.sameSite}")
     private String sameSite;
+    @Value("${spring.app.jwtKeyId}")
+    private String jwtKeyId;
+    // Keys of rotated out secrets that are still accepted for verification, format: kid1:base64Secret1,kid2:base64Secret2
+    @Value("${spring.app.jwtPreviousSecrets}")
+    private String jwtPreviousSecrets;
+
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // Decode the secrets and build the (thread safe) parser once instead of on every request
+    @PostConstruct
+    public void init() {
+        signingKey = hmacKey(jwtSecret);
+        Map<String, Key> verificationKeys = new HashMap<>();
+        verificationKeys.put(jwtKeyId, signingKey);
+        String[] previousSecrets = jwtPreviousSecrets.split(",");
+        for (int i = 0; i < previousSecrets.length; i++) {
+            String entry = previousSecrets[i].trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String[] kidAndSecret = entry.split(":", 2);
+            if (kidAndSecret.length != 2 || kidAndSecret[0].isBlank() || kidAndSecret[1].isBlank()) {
+                throw new IllegalStateException("spring.app.jwtPreviousSecrets entry " + i
+                        + " is not in the form kid:base64Secret");
+            }
+            verificationKeys.putIfAbsent(kidAndSecret[0].trim(), hmacKey(kidAndSecret[1].trim()));
+        }
+        LOG.info("JWT signing key id: {}, accepted key ids: {}", jwtKeyId, verificationKeys.keySet());
+
+        jwtParser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        String keyId = header.getKeyId();
+                        // Tokens issued before key ids were introduced are signed with the current secret
+                        if (keyId == null) {
+                            return signingKey;
+                        }
+                        Key key = verificationKeys.get(keyId);
+                        if (key == null) {
+                            throw new UnsupportedJwtException("Unknown JWT key id: " + keyId);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
 
     // Get JWT  Header
     public String getJwtFromHeader(HttpServletRequest request) {
@@ -57,7 +121,7 @@ public class JwtUtils {
     }
 
     public ResponseCookie generateJwtCookie(UserDetailsImpl user) {
-        String jwtToken = generateTokenFromUsername(user.getUsername());
+        String jwtToken = generateTokenFromUserDetails(user);
         LOG.debug("Generated JWT Token {}", jwtToken);
         return ResponseCookie.from(jwtCookie, jwtToken)
                 // Make the cookie available to the entire backend ("/") so it is sent on all backend requests
@@ -82,46 +146,101 @@ public class JwtUtils {
     }
 
     public String generateTokenFromUsername(UserDetails userDetails) {
+        if (userDetails instanceof UserDetailsImpl user) {
+            return generateTokenFromUserDetails(user);
+        }
         String username = userDetails.getUsername();
         return generateTokenFromUsername(username);
     }
 
+    // Signs id, email, roles and token version into the token so requests can be authenticated without a DB read
+    private String generateTokenFromUserDetails(UserDetailsImpl user) {
+        List<String> roles = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+        return Jwts.builder().subject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_EMAIL, user.getEmail())
+                .claim(CLAIM_ROLES, roles)
+                .claim(CLAIM_TOKEN_VERSION, user.getTokenVersion())
+                .issuedAt(Calendar.getInstance().getTime())
+                .expiration(new Date(new Date().getTime() + jwtExpirationTime))
+                .header().keyId(jwtKeyId).and()
+                .signWith(signingKey)
+                .compact();
+    }
+
     private String generateTokenFromUsername(String username) {
         return Jwts.builder().subject(username)
                 .issuedAt(Calendar.getInstance().getTime())
                 .expiration(new Date(new Date().getTime() + jwtExpirationTime))
-                .signWith(key())
+                .header().keyId(jwtKeyId).and()
+                .signWith(signingKey)
                 .compact();
     }
 
     public String getUserNameFromJWTToken(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build().parseSignedClaims(token)
+        return jwtParser.parseSignedClaims(token)
                 .getPayload().getSubject();
     }
 
+    // Returns null for tokens without user claims (issued before claims based authentication). parseClaims has
+    // rejected tokens whose user claims are incomplete.
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Object userId = claims.get(CLAIM_USER_ID);
+        if (userId == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = ((Collection<?>) claims.get(CLAIM_ROLES, Collection.class)).stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        UserDetailsImpl user = new UserDetailsImpl(((Number) userId).longValue(), claims.getSubject(),
+                claims.get(CLAIM_EMAIL, String.class), null, authorities);
+        user.setTokenVersion(((Number) claims.get(CLAIM_TOKEN_VERSION)).longValue());
+        return user;
+    }
+
     public Key key() {
-        return Keys.hmacShaKeyFor(
-                Decoders.BASE64.decode(jwtSecret));
+        return signingKey;
     }
 
     public boolean validateJwtToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    // Verifies the token once and returns its claims, or null if the token is not valid
+    public Claims parseClaims(String authToken) {
         try {
-            System.out.println("Validating JWT Token");
-            Jwts.parser()
-                    .verifyWith((SecretKey) key())
-                    .build().parseClaimsJws(authToken);
-            return true;
+            Claims claims = jwtParser.parseSignedClaims(authToken).getPayload();
+            checkUserClaims(claims);
+            return claims;
         } catch (MalformedJwtException e) {
             LOG.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             LOG.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             LOG.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (SignatureException e) {
+            LOG.error("JWT signature is invalid: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             LOG.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    // A token with a user id must carry the rest of the user claims, signed with a valid key or not
+    private static void checkUserClaims(Claims claims) {
+        if (claims.get(CLAIM_USER_ID) == null) {
+            return;
+        }
+        if (!(claims.get(CLAIM_USER_ID) instanceof Number)
+                || !(claims.get(CLAIM_ROLES) instanceof Collection<?>)
+                || !(claims.get(CLAIM_TOKEN_VERSION) instanceof Number)) {
+            throw new MalformedJwtException("JWT user claims are incomplete");
+        }
+    }
+
+    private static SecretKey hmacKey(String base64Secret) {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
     }
 }
@@ -0,0 +1,42 @@
+package com.ecommerce.project.security.services;
+
+import com.ecommerce.project.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Current token version per user id, used to reject claims-based JWTs issued before a role change.
+// The TTL is the upper bound for how long a revoked token is still accepted.
+@Component
+public class TokenVersionCache {
+    private static final long UNKNOWN_USER = -1L;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Long> cache;
+
+    public TokenVersionCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${spring.app.principalCacheMaxSize}") long maxSize,
+                             @Value("${spring.app.tokenVersionCacheTtlSeconds}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .<Long, Long>build(), "tokenVersionCache");
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        long currentVersion = cache.get(userId, id -> userRepository.findTokenVersionByUserId(id).orElse(UNKNOWN_USER));
+        return currentVersion == tokenVersion;
+    }
+
+    public void evict(Long userId) {
+        cache.invalidate(userId);
+    }
+}
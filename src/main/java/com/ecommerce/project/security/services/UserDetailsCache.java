@@ -0,0 +1,55 @@
+package com.ecommerce.project.security.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Caches the authenticated principal per username so the JWT filter does not query the users table on every request
+@Component
+public class UserDetailsCache {
+    public static final Logger LOG = LoggerFactory.getLogger(UserDetailsCache.class);
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final Cache<String, UserDetailsImpl> cache;
+
+    public UserDetailsCache(UserDetailsServiceImpl userDetailsService,
+                            MeterRegistry meterRegistry,
+                            @Value("${spring.app.principalCacheMaxSize}") long maxSize,
+                            @Value("${spring.app.principalCacheTtlSeconds}") long ttlSeconds) {
+        this.userDetailsService = userDetailsService;
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .<String, UserDetailsImpl>build(), "principalCache");
+    }
+
+    public UserDetailsImpl getOrLoad(String username) {
+        return cache.get(username, this::load);
+    }
+
+    public void evict(String username) {
+        LOG.debug("Evicting cached principal for {}", username);
+        cache.invalidate(username);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private UserDetailsImpl load(String username) {
+        UserDetailsImpl user = (UserDetailsImpl) userDetailsService.loadUserByUsername(username);
+        // The password hash is only needed for the login, do not keep it in memory
+        UserDetailsImpl principal = new UserDetailsImpl(user.getId(), user.getUsername(), user.getEmail(), null,
+                user.getAuthorities());
+        principal.setTokenVersion(user.getTokenVersion());
+        return principal;
+    }
+}
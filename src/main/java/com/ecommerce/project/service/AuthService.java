@@ -19,7 +19,7 @@ public interface AuthService {
 
     UserInfoResponse getCurrentUserDetails(Authentication authentication);
 
-    ResponseCookie logoutUser();
+    ResponseCookie logoutUser(Authentication authentication);
 
     UserResponse getAllSellers(Pageable pageable);
 }
@@ -1,5 +1,6 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.mapper.UserMapper;
 import com.ecommerce.project.model.AppRole;
 import com.ecommerce.project.model.Role;
 import com.ecommerce.project.model.User;
@@ -13,9 +14,9 @@ import com.ecommerce.project.security.request.LoginRequest;
 import com.ecommerce.project.security.request.SignupRequest;
 import com.ecommerce.project.security.response.MessageResponse;
 import com.ecommerce.project.security.response.UserInfoResponse;
+import com.ecommerce.project.security.services.UserDetailsCache;
 import com.ecommerce.project.security.services.UserDetailsImpl;
 import jakarta.transaction.Transactional;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -53,7 +54,10 @@ public class AuthServiceImpl implements AuthService {
     PasswordEncoder encoder;
 
     @Autowired
-    ModelMapper modelMapper;
+    UserMapper userMapper;
+
+    @Autowired
+    UserDetailsCache userDetailsCache;
 
     @Override
     public AuthenticationResult login(LoginRequest loginRequest) {
@@ -123,6 +127,7 @@ public class AuthServiceImpl implements AuthService {
 
         user.setRoles(roles);
         userRepository.save(user);
+        userDetailsCache.evict(user.getUsername());
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
 
@@ -141,7 +146,10 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
-    public ResponseCookie logoutUser() {
+    public ResponseCookie logoutUser(Authentication authentication) {
+        if (authentication != null) {
+            userDetailsCache.evict(authentication.getName());
+        }
         return jwtUtils.generateCleanJwtCookie();
     }
 
@@ -150,7 +158,7 @@ public class AuthServiceImpl implements AuthService {
         Page<User> allUsers = userRepository.findByRoleName(AppRole.ROLE_SELLER, pageable);
         List<UserDTO> userDtos = allUsers.getContent()
                 .stream()
-                .map(p -> modelMapper.map(p, UserDTO.class))
+                .map(userMapper::toDto)
                 .collect(Collectors.toList());
 
         UserResponse response = new UserResponse();
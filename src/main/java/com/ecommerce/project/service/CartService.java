@@ -2,7 +2,6 @@ package com.ecommerce.project.service;
 
 import com.ecommerce.project.payload.CartDto;
 import com.ecommerce.project.payload.CartItemDto;
-import jakarta.transaction.Transactional;
 
 import java.util.List;
 
@@ -13,12 +12,13 @@ public interface CartService {
 
     CartDto getCart(String userEmail, Long cartId);
 
-    @Transactional
+    CartDto getUserCart(String userEmail);
+
     CartDto updateProductQuantityInCart(Long productId, Integer quantity);
 
     String deleteProductFromCart(Long cartId, Long productId);
 
-    void updateProductInCarts(Long cartId, Long productId);
+    int repriceProductInCarts(Long productId, double price, double discount);
 
     String createOrUpdateCartWithItems(List<CartItemDto> cartItems);
 }
@@ -2,28 +2,36 @@ package com.ecommerce.project.service;
 
 import com.ecommerce.project.exceptions.ApiException;
 import com.ecommerce.project.exceptions.ResourceNotFoundException;
+import com.ecommerce.project.mapper.CartMapper;
 import com.ecommerce.project.model.Cart;
 import com.ecommerce.project.model.CartItem;
 import com.ecommerce.project.model.Product;
 import com.ecommerce.project.payload.CartDto;
 import com.ecommerce.project.payload.CartItemDto;
-import com.ecommerce.project.payload.ProductDto;
 import com.ecommerce.project.repositories.CartItemRepository;
 import com.ecommerce.project.repositories.CartRepository;
 import com.ecommerce.project.repositories.ProductRepository;
 import com.ecommerce.project.util.AuthUtil;
 import io.jsonwebtoken.lang.Objects;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.transaction.Transactional;
-import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 @Service
 public class CartServiceImpl implements CartService {
+    public static final Logger LOG = LoggerFactory.getLogger(CartServiceImpl.class);
 
     @Autowired
     private CartRepository cartRepository;
@@ -34,12 +42,23 @@ public class CartServiceImpl implements CartService {
     @Autowired
     private CartItemRepository cartItemRepository;
     @Autowired
-    private ModelMapper modelMapper;
+    private CartMapper cartMapper;
     @Autowired
     private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.app.cartRetryMaxAttempts}")
+    private int retryMaxAttempts;
+    @Value("${spring.app.cartRetryBackoffMillis}")
+    private long retryBackoffMillis;
 
     @Override
     public CartDto addProductToCart(Long productId, Integer quantity) {
+        return retryOnConflict(() -> doAddProductToCart(productId, quantity));
+    }
+
+    private CartDto doAddProductToCart(Long productId, Integer quantity) {
         Cart cart = fetchOrCreateCart();
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
@@ -63,27 +82,16 @@ public class CartServiceImpl implements CartService {
         newCartItem.setCart(cart);
         newCartItem.setQuantity(quantity);
         newCartItem.setDiscount(product.getDiscount());
-        newCartItem.setProductPrice(product.getPrice());
-        product.setQuantity(product.getQuantity());
+        newCartItem.setProductPrice(product.getSpecialPrice());
 
         cartItemRepository.save(newCartItem);
-        cart.setTotalPrice(cart.getTotalPrice() + product.getSpecialPrice() * quantity);
         cart.getCartItems().add(newCartItem);
-        cartRepository.save(cart);
 
         return convertToCartDto(cart);
     }
 
     private CartDto convertToCartDto(Cart cart) {
-        CartDto cartDto = modelMapper.map(cart, CartDto.class);
-        List<ProductDto> productDtos = cart.getCartItems()
-                .stream().map((item) -> {
-                    ProductDto prod = modelMapper.map(item.getProduct(), ProductDto.class);
-                    prod.setQuantity(item.getQuantity());
-                    return prod;
-                }).toList();
-        cartDto.setProducts(productDtos);
-        return cartDto;
+        return cartMapper.toDto(cart);
     }
 
     @Override
@@ -112,16 +120,31 @@ public class CartServiceImpl implements CartService {
         return cartDto;
     }
 
-    @Transactional
+    @Override
+    public CartDto getUserCart(String userEmail) {
+        Cart cart = cartRepository.findCartByEmail(userEmail);
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart", "email", userEmail);
+        }
+        return convertToCartDto(cart);
+    }
+
     @Override
     public CartDto updateProductQuantityInCart(Long productId, Integer quantity) {
+        return retryOnConflict(() -> doUpdateProductQuantityInCart(productId, quantity));
+    }
 
+    private CartDto doUpdateProductQuantityInCart(Long productId, Integer quantity) {
         String emailId = authUtil.loggedInEmail();
-        Cart userCart = cartRepository.findCartByEmail(emailId);
-        Long cartId = userCart.getCartId();
+        Cart cart = cartRepository.findCartByEmailForWrite(emailId);
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart", "email", emailId);
+        }
+        Long cartId = cart.getCartId();
 
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
+        // Read before the product: if a reprice commits in between, the item's version no longer matches on flush
+        // and the update is retried with the new price, instead of writing back the price read before the reprice
+        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
 
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
@@ -135,8 +158,6 @@ public class CartServiceImpl implements CartService {
                     + " less than or equal to the quantity " + product.getQuantity() + ".");
         }
 
-        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
-
         if (cartItem == null) {
             throw new ApiException("Product " + product.getProductName() + " not available in the cart!!!");
         }
@@ -150,38 +171,23 @@ public class CartServiceImpl implements CartService {
         }
 
         if (newQuantity == 0) {
-            cart.setTotalPrice(cart.getTotalPrice() -
-                    (cartItem.getProductPrice() * cartItem.getQuantity()));
-            deleteProductFromCart(cartItem);
+            // orphanRemoval deletes the item on flush
+            cart.getCartItems().removeIf(item -> item.getCartItemId().equals(cartItem.getCartItemId()));
         } else {
             cartItem.setProductPrice(product.getSpecialPrice());
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
+            cartItem.setQuantity(newQuantity);
             cartItem.setDiscount(product.getDiscount());
-            cart.setTotalPrice(cart.getTotalPrice() + (cartItem.getProductPrice() * quantity));
             cartItemRepository.save(cartItem);
         }
 
-        cartRepository.save(cart);
-        CartDto cartDTO = modelMapper.map(cart, CartDto.class);
-
-        List<CartItem> cartItems = cart.getCartItems();
-
-        Stream<ProductDto> productStream = cartItems.stream().map(item -> {
-            ProductDto prd = modelMapper.map(item.getProduct(), ProductDto.class);
-            prd.setQuantity(item.getQuantity());
-            return prd;
-        });
-
-
-        cartDTO.setProducts(productStream.toList());
-
-        return cartDTO;
+        return convertToCartDto(cart);
     }
 
     @Override
     public String deleteProductFromCart(Long cartId, Long productId) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
+        if (!cartRepository.existsById(cartId)) {
+            throw new ResourceNotFoundException("Cart", "cartId", cartId);
+        }
 
         CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
 
@@ -189,55 +195,35 @@ public class CartServiceImpl implements CartService {
             throw new ResourceNotFoundException("Product", "productId", productId);
         }
 
-        cart.setTotalPrice(cart.getTotalPrice() -
-                (cartItem.getProductPrice() * cartItem.getQuantity()));
-
         cartItemRepository.deleteByIdCustom(cartItem.getCartItemId());
 
         return "Product " + cartItem.getProduct().getProductName() + " removed from the cart !!!";
 
     }
 
+    // Set based: one UPDATE for the cart items however many carts contain the product, cart totals are derived from them
     @Override
-    public void updateProductInCarts(Long cartId, Long productId) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
-
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
-
-        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
-
-        if (cartItem == null) {
-            throw new ApiException("Product " + product.getProductName() + " not available in the cart!!!");
-        }
-
-        // 1000-100*2=800
-        double cartPrice = cart.getTotalPrice()
-                - (cartItem.getProductPrice() * cartItem.getQuantity());
-
-        // 200
-        cartItem.setProductPrice(product.getSpecialPrice());
-
-        // 800 + 200*2 = 1200
-        cart.setTotalPrice(cartPrice
-                + (cartItem.getProductPrice() * cartItem.getQuantity()));
-
-        cartItemRepository.save(cartItem);
+    @Transactional
+    public int repriceProductInCarts(Long productId, double price, double discount) {
+        long start = System.currentTimeMillis();
+        int cartItems = cartItemRepository.repriceProduct(productId, price, discount);
+        LOG.info("Repriced product {} in {} cart items in {} ms", productId, cartItems,
+                System.currentTimeMillis() - start);
+        return cartItems;
     }
 
     @Override
-    @Transactional
     public String createOrUpdateCartWithItems(List<CartItemDto> cartItems) {
+        return retryOnConflict(() -> doCreateOrUpdateCartWithItems(cartItems));
+    }
+
+    private String doCreateOrUpdateCartWithItems(List<CartItemDto> cartItems) {
         Cart cart = fetchOrCreateCart();
 
-        // Clear all current items in the existing cart
+        // Clear all current items in the existing cart, orphanRemoval deletes them on flush with their version check
         if (!Objects.isEmpty(cart.getCartItems())) {
-            cartItemRepository.deleteAllByCartId(cart.getCartId());
             cart.getCartItems().clear();
-            cartRepository.save(cart);
         }
-        double totalPrice = 0.00;
         // Process each item in the request to add the cart
         for (CartItemDto cartItem : cartItems) {
             Long productId = cartItem.getProductId();
@@ -247,7 +233,6 @@ public class CartServiceImpl implements CartService {
 
             // Lets update this after we checked it after it was ordered and payed.
             // product.setQuantity(product.getQuantity() - quantity);
-            totalPrice += product.getSpecialPrice() * quantity;
 
             CartItem newCartItem = new CartItem();
             newCartItem.setProduct(product);
@@ -259,25 +244,40 @@ public class CartServiceImpl implements CartService {
             cart.getCartItems().add(newCartItem);
         }
 
-        cart.setTotalPrice(totalPrice);
-        cartRepository.save(cart);
-
         return "Cart created or updated successfully";
     }
 
-    String deleteProductFromCart(CartItem cartItem) {
-        cartItemRepository.deleteByIdCustom(cartItem.getCartItemId());
-        return "Product " + cartItem.getProduct().getProductName() + " removed from the cart !!!";
+    // Runs the action in its own transaction and repeats it with a fresh read when a concurrent change to the
+    // same cart won, backing off exponentially with jitter. Gives up after retryMaxAttempts (409 to the client).
+    private <T> T retryOnConflict(Supplier<T> action) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= retryMaxAttempts) {
+                    LOG.warn("Cart update still conflicting after {} attempts", attempt);
+                    throw e;
+                }
+                long backoff = retryBackoffMillis << (attempt - 1);
+                LOG.debug("Cart update conflict on attempt {}, retrying in about {} ms", attempt, backoff);
+                try {
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
     }
 
     private Cart fetchOrCreateCart() {
-        Cart cart = cartRepository.findCartByEmail(authUtil.loggedInEmail());
+        Cart cart = cartRepository.findCartByEmailForWrite(authUtil.loggedInEmail());
         if (cart != null) {
             return cart;
         }
 
         cart = new Cart();
-        cart.setTotalPrice(0.00);
         cart.setUser(authUtil.loggedInUser());
         return cartRepository.save(cart);
     }
@@ -0,0 +1,6 @@
+package com.ecommerce.project.service;
+
+// Published by CatalogVersion when it sees a catalog version written by another instance. What changed is not known
+// here, so the caches of this instance treat it as a change to everything.
+public record CatalogChangedElsewhereEvent(long version) {
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.project.service;
+
+import java.util.Set;
+
+// Published by every write to products or categories. categoryId is the category whose products changed,
+// null when the change is not limited to one category. productIds are the existing products that were updated
+// or deleted, empty when none were.
+public record CatalogChangedEvent(Long categoryId, Set<Long> productIds) {
+
+    public CatalogChangedEvent(Long categoryId) {
+        this(categoryId, Set.of());
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.CatalogVersionRecord;
+import com.ecommerce.project.repositories.CatalogVersionRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Version stamp of the catalog, the ETag of the public catalog responses. Kept in the catalog_version row so every
+// instance answers with the same ETag, and bumped in the transaction of the change: readers see the new version
+// together with the new data, never before it. Each instance reads the row at most once per
+// spring.app.catalogVersionRefreshMillis, so it may answer 304 for a change committed elsewhere for that long.
+// A version this instance did not write means its local caches missed a change: CatalogChangedElsewhereEvent is
+// published before the new version is handed out.
+@Component
+public class CatalogVersion {
+
+    private record Snapshot(long version, long refreshAtNanos) {
+    }
+
+    @Autowired
+    private CatalogVersionRecordRepository catalogVersionRecordRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${spring.app.catalogVersionRefreshMillis}")
+    private long refreshMillis;
+
+    // Versions written by this instance and not read back yet
+    private final Set<Long> ownVersions = ConcurrentHashMap.newKeySet();
+    private volatile Snapshot snapshot;
+
+    // Starts from the clock so a new database does not reuse old ETags. Another instance may insert the row first.
+    @PostConstruct
+    public void init() {
+        if (catalogVersionRecordRepository.findVersion().isEmpty()) {
+            try {
+                catalogVersionRecordRepository.save(new CatalogVersionRecord(System.currentTimeMillis()));
+            } catch (DataIntegrityViolationException e) {
+                // Inserted concurrently
+            }
+        }
+        snapshot = new Snapshot(catalogVersionRecordRepository.findVersion().orElseThrow(), nextRefresh());
+    }
+
+    public long current() {
+        Snapshot current = snapshot;
+        if (System.nanoTime() - current.refreshAtNanos() < 0) {
+            return current.version();
+        }
+        return refresh();
+    }
+
+    // Changes made outside a transaction are bumped in a transaction of their own, after they were written
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        catalogVersionRecordRepository.increment();
+        long written = catalogVersionRecordRepository.findVersion().orElseThrow();
+        ownVersions.add(written);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            expire();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    // Another instance may commit this version number
+                    ownVersions.remove(written);
+                }
+                expire();
+            }
+        });
+    }
+
+    private synchronized long refresh() {
+        Snapshot current = snapshot;
+        if (System.nanoTime() - current.refreshAtNanos() < 0) {
+            return current.version();
+        }
+        long version = catalogVersionRecordRepository.findVersion().orElseThrow();
+        if (changedElsewhere(current.version(), version)) {
+            eventPublisher.publishEvent(new CatalogChangedElsewhereEvent(version));
+        }
+        ownVersions.removeIf(ownVersion -> ownVersion <= version);
+        snapshot = new Snapshot(version, nextRefresh());
+        return version;
+    }
+
+    private boolean changedElsewhere(long seen, long version) {
+        if (version - seen > ownVersions.size()) {
+            return true;
+        }
+        for (long v = seen + 1; v <= version; v++) {
+            if (!ownVersions.contains(v)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // This instance's change is read back on the next call
+    private synchronized void expire() {
+        Snapshot current = snapshot;
+        snapshot = new Snapshot(current.version(), System.nanoTime());
+    }
+
+    private long nextRefresh() {
+        return System.nanoTime() + Duration.ofMillis(refreshMillis).toNanos();
+    }
+}
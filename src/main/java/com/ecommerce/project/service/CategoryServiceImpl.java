@@ -2,14 +2,14 @@ package com.ecommerce.project.service;
 
 import com.ecommerce.project.exceptions.ApiException;
 import com.ecommerce.project.exceptions.ResourceNotFoundException;
+import com.ecommerce.project.mapper.CategoryMapper;
 import com.ecommerce.project.model.Category;
 import com.ecommerce.project.payload.CategoryDTO;
 import com.ecommerce.project.payload.CategoryResponse;
 import com.ecommerce.project.repositories.CategoryRepository;
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -26,8 +26,10 @@ public class CategoryServiceImpl implements CategoryService {
     private CategoryRepository categoryRepository;
 
     @Autowired
-    @Qualifier("modelMapper")
-    private ModelMapper modelMapper;
+    private CategoryMapper categoryMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public CategoryResponse getAllCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
@@ -42,7 +44,7 @@ public class CategoryServiceImpl implements CategoryService {
             throw new ApiException("No categories found");
         }
         List<CategoryDTO> categoryDtos = categories.stream()
-                .map(category -> modelMapper.map(category, CategoryDTO.class))
+                .map(categoryMapper::toDto)
                 .toList();
         CategoryResponse categoryResponse = new CategoryResponse();
         categoryResponse.setContent(categoryDtos);
@@ -61,9 +63,10 @@ public class CategoryServiceImpl implements CategoryService {
             throw new ApiException("Category with name '" + categoryDto.getCategoryName() + "' already exists");
         }
         categoryDto.setCategoryId(null);
-        Category category = modelMapper.map(categoryDto, Category.class);
+        Category category = categoryMapper.toEntity(categoryDto);
         Category savedCategory = categoryRepository.save(category);
-        return modelMapper.map(savedCategory, CategoryDTO.class);
+        eventPublisher.publishEvent(new CatalogChangedEvent(savedCategory.getCategoryId()));
+        return categoryMapper.toDto(savedCategory);
     }
 
     @Override
@@ -75,7 +78,8 @@ public class CategoryServiceImpl implements CategoryService {
                 );
 
         categoryRepository.delete(deleteCat);
-        return modelMapper.map(deleteCat, CategoryDTO.class);
+        eventPublisher.publishEvent(new CatalogChangedEvent(categoryId));
+        return categoryMapper.toDto(deleteCat);
     }
 
     @Override
@@ -86,7 +90,8 @@ public class CategoryServiceImpl implements CategoryService {
                 .map(cat -> {
                     cat.setCategoryName(category.getCategoryName());
                     Category savedCategory = categoryRepository.save(cat);
-                    return modelMapper.map(savedCategory, CategoryDTO.class);
+                    eventPublisher.publishEvent(new CatalogChangedEvent(categoryId));
+                    return categoryMapper.toDto(savedCategory);
                 }).orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
     }
 }
@@ -0,0 +1,11 @@
+package com.ecommerce.project.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    // Throws ApiException for unknown exports or formats, before anything is written to the response
+    void checkExport(String export, String format);
+
+    void export(String export, String format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.ApiException;
+import com.ecommerce.project.payload.CartExportRow;
+import com.ecommerce.project.payload.OrderExportRow;
+import com.ecommerce.project.payload.ProductExportRow;
+import com.ecommerce.project.repositories.CartRepository;
+import com.ecommerce.project.repositories.OrderRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Streams rows from a database cursor straight into the response, so memory stays flat whatever the table size.
+// The read-only transaction keeps the cursor open while the rows are written.
+@Service
+public class ExportServiceImpl implements ExportService {
+    public static final Logger LOG = LoggerFactory.getLogger(ExportServiceImpl.class);
+    private static final Set<String> EXPORTS = Set.of("products", "orders", "carts");
+    private static final Set<String> FORMATS = Set.of("ndjson", "csv");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CsvMapper csvMapper;
+
+    @Override
+    public void checkExport(String export, String format) {
+        if (!EXPORTS.contains(export)) {
+            throw new ApiException("Unknown export: " + export + ", use one of " + EXPORTS);
+        }
+        if (!FORMATS.contains(format)) {
+            throw new ApiException("Unsupported export format: " + format + ", use one of " + FORMATS);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void export(String export, String format, OutputStream out) throws IOException {
+        checkExport(export, format);
+        long start = System.currentTimeMillis();
+        long rows = switch (export) {
+            case "products" -> write(productRepository.streamExportRows(), ProductExportRow.class, format, out);
+            case "orders" -> write(orderRepository.streamExportRows(), OrderExportRow.class, format, out);
+            default -> write(cartRepository.streamExportRows(), CartExportRow.class, format, out);
+        };
+        LOG.info("Exported {} {} rows as {} in {} ms", rows, export, format, System.currentTimeMillis() - start);
+    }
+
+    private <T> long write(Stream<T> rows, Class<T> type, String format, OutputStream out) throws IOException {
+        ObjectWriter writer = format.equals("csv")
+                ? csvMapper.writerFor(type).with(csvMapper.schemaFor(type).withHeader())
+                : objectMapper.writerFor(type).withRootValueSeparator("\n");
+        long count = 0;
+        try (Stream<T> stream = rows;
+             SequenceWriter sequence = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValues(out)) {
+            Iterator<T> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                sequence.write(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+}
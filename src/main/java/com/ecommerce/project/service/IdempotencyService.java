@@ -0,0 +1,10 @@
+package com.ecommerce.project.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    // Runs the action once per key: a retry with the same key and request gets the stored result,
+    // a concurrent duplicate waits for the result of the request in flight
+    <T> T execute(String key, String owner, Object request, Class<T> resultType, Supplier<T> action);
+}
@@ -0,0 +1,227 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.ApiException;
+import com.ecommerce.project.exceptions.ConflictException;
+import com.ecommerce.project.model.IdempotencyRecord;
+import com.ecommerce.project.repositories.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// The idempotency_records row is the claim on a key: whoever inserts it runs the action, and the result is stored
+// in the same transaction as the action's writes. Duplicates on this instance wait on the in-flight future,
+// duplicates on other instances poll the row until it is completed. A claim whose lease expired may be taken over
+// by another instance; the request that outlived its lease then cannot complete its claim and is rolled back, so
+// the action commits once. The lease has to be longer than the action takes (see idempotencyLeaseSeconds).
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+    public static final Logger LOG = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long POLL_MILLIS = 100;
+
+    private record InFlight(String owner, String requestHash, CompletableFuture<Object> result) {
+    }
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${spring.app.idempotencyKeyTtlHours}")
+    private long ttlHours;
+    @Value("${spring.app.idempotencyLeaseSeconds}")
+    private long leaseSeconds;
+
+    @Override
+    public <T> T execute(String key, String owner, Object request, Class<T> resultType, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ApiException("Idempotency-Key must have 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(request);
+
+        InFlight mine = new InFlight(owner, requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            checkSameRequest(running.owner(), running.requestHash(), owner, requestHash);
+            return resultType.cast(await(running.result()));
+        }
+        try {
+            T result = executeOnce(key, owner, requestHash, resultType, action);
+            mine.result().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private <T> T executeOnce(String key, String owner, String requestHash, Class<T> resultType, Supplier<T> action) {
+        long deadline = System.currentTimeMillis() + Duration.ofSeconds(leaseSeconds).toMillis();
+        while (true) {
+            Optional<IdempotencyRecordRepository.State> state = idempotencyRecordRepository.findState(key);
+            if (state.isEmpty()) {
+                String leaseId = claim(key, owner, requestHash);
+                if (leaseId != null) {
+                    return run(key, leaseId, action);
+                }
+                // Another instance claimed the key in the meantime
+                continue;
+            }
+
+            IdempotencyRecordRepository.State record = state.get();
+            checkSameRequest(record.getOwner(), record.getRequestHash(), owner, requestHash);
+            if (record.getExpiresAt().isBefore(Instant.now())) {
+                // A replay window that has passed, or the lease of a request that never finished
+                idempotencyRecordRepository.deleteIfExpired(key, Instant.now());
+                continue;
+            }
+            if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                LOG.debug("Replaying the stored response for Idempotency-Key {}", key);
+                return read(record.getResponse(), resultType);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new ConflictException("A request with this Idempotency-Key is still in progress");
+            }
+            sleep();
+        }
+    }
+
+    // Returns the lease id of the claim, null when the key was claimed concurrently
+    private String claim(String key, String owner, String requestHash) {
+        Instant now = Instant.now();
+        String leaseId = UUID.randomUUID().toString();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                entityManager.persist(new IdempotencyRecord(key, leaseId, owner, requestHash, now,
+                        now.plusSeconds(leaseSeconds)));
+                entityManager.flush();
+            });
+            return leaseId;
+        } catch (EntityExistsException | ConstraintViolationException | DataIntegrityViolationException e) {
+            // Primary key violation: the key was claimed concurrently
+            return null;
+        }
+    }
+
+    // The action's writes and the stored response commit together, a failed action frees the key for a retry
+    private <T> T run(String key, String leaseId, Supplier<T> action) {
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                T result = action.get();
+                Instant now = Instant.now();
+                int completed = idempotencyRecordRepository.complete(key, leaseId, IdempotencyRecord.Status.COMPLETED,
+                        write(result), now.plus(Duration.ofHours(ttlHours)), now);
+                if (completed == 0) {
+                    LOG.warn("Request with Idempotency-Key {} outlived its lease, rolling it back", key);
+                    throw new ConflictException("The request with this Idempotency-Key took too long and was not "
+                            + "saved, retry it");
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.deleteClaim(key, leaseId);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.idempotencyPurgeIntervalMillis}")
+    public void purgeExpired() {
+        int purged = idempotencyRecordRepository.deleteExpired(Instant.now());
+        if (purged > 0) {
+            LOG.info("Purged {} expired idempotency records", purged);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> result) {
+        try {
+            return result.get(leaseSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for the request with this Idempotency-Key");
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for the request with this Idempotency-Key");
+        }
+    }
+
+    private static void checkSameRequest(String expectedOwner, String expectedHash, String owner, String requestHash) {
+        if (!expectedOwner.equals(owner)) {
+            throw new ApiException("Idempotency-Key is already used");
+        }
+        if (!expectedHash.equals(requestHash)) {
+            throw new ApiException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot hash the request", e);
+        }
+    }
+
+    private String write(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store the response", e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> resultType) {
+        try {
+            return objectMapper.readValue(response, resultType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read the stored response", e);
+        }
+    }
+}
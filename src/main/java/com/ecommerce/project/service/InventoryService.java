@@ -0,0 +1,8 @@
+package com.ecommerce.project.service;
+
+import java.util.Map;
+
+public interface InventoryService {
+    // Takes the quantities (by productId) out of stock, all or nothing
+    void reserve(Map<Long, Integer> quantitiesByProductId);
+}
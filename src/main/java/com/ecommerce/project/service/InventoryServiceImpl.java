@@ -0,0 +1,65 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.ApiException;
+import com.ecommerce.project.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    // Conditional decrement: updates no row when the stock would go negative, so concurrent reservations cannot oversell.
+    // Bumps the version like a Hibernate update would.
+    private static final String DECREMENT_STOCK =
+            "UPDATE products SET quantity = quantity - ?, version = version + 1 WHERE product_id = ? AND quantity >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private StockChangePublisher stockChangePublisher;
+
+    // All products are decremented in one JDBC batch instead of a read-modify-write per product.
+    // Products are updated in ascending id order so concurrent multi item orders take the row locks in the same
+    // order and cannot deadlock. A product short of stock fails the reservation and the transaction
+    // rolls back the decrements already made.
+    // The public catalog is told about the new stock by StockChangePublisher, not once per order.
+    @Override
+    @Transactional
+    public void reserve(Map<Long, Integer> quantitiesByProductId) {
+        List<Object[]> batch = new ArrayList<>();
+        new TreeMap<>(quantitiesByProductId).forEach((productId, quantity) ->
+                batch.add(new Object[]{quantity, productId, quantity}));
+
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK, batch);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new ApiException("Insufficient stock for product " + batch.get(i)[1]);
+            }
+        }
+
+        // Hibernate does not see JDBC updates, so the cached products are evicted once the new stock is committed.
+        // Evicting earlier would let a concurrent read cache the old stock again.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                quantitiesByProductId.keySet().forEach(productId ->
+                        entityManagerFactory.getCache().evict(Product.class, productId));
+                stockChangePublisher.stockChanged(quantitiesByProductId.keySet());
+            }
+        });
+    }
+}
@@ -0,0 +1,365 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductSearchResult;
+import com.ecommerce.project.payload.ProductVersion;
+import com.ecommerce.project.repositories.ProductRepository;
+import com.ecommerce.project.util.ProductCursor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+// Lucene index on local disk. Each node keeps its own index, written after every product change it commits.
+// Changes committed by other nodes and writes that failed are caught up by reconcile, which compares the version of
+// every indexed product with the database at startup and on a schedule.
+@Component
+@ConditionalOnProperty(name = "search.index.enabled", havingValue = "true", matchIfMissing = true)
+public class LuceneProductSearchIndex implements ProductSearchIndex {
+    public static final Logger LOG = LoggerFactory.getLogger(LuceneProductSearchIndex.class);
+    private static final int REINDEX_BATCH_SIZE = 1000;
+
+    private static final String ID = "id";
+    private static final String PRODUCT_ID = "productId";
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String CATEGORY = "category";
+    private static final String CATEGORY_KEY = "categoryKey";
+    private static final String VERSION = "version";
+    // Field boosts: a hit in the product name ranks above a hit in the category name or the description
+    private static final Map<String, Float> SEARCH_FIELDS = Map.of(NAME, 3f, CATEGORY, 2f, DESCRIPTION, 1f);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final FSDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final Counter failures;
+
+    public LuceneProductSearchIndex(MeterRegistry meterRegistry,
+                                    @Value("${search.index.path}") String indexPath) throws IOException {
+        this.directory = FSDirectory.open(Path.of(indexPath));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        // Failed index writes, each one leaves search out of step with the database until the next reconcile
+        this.failures = meterRegistry.counter("search.index.failures");
+    }
+
+    // Reindexes the products whose indexed version differs from the database (all of them when the index is empty)
+    // and removes the deleted ones. The index is read before the database: a product deleted in between is in the
+    // database no more and removed, one created in between is not in the snapshot and left alone. A product updated
+    // while it is reindexed may be written from the older read, the next run writes it again.
+    // Stock decrements bump the version too, so products sold since the last run are reindexed as well.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${search.index.reconcileIntervalMillis}",
+            fixedDelayString = "${search.index.reconcileIntervalMillis}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> indexed;
+        try {
+            indexed = indexedVersions();
+        } catch (IOException e) {
+            failures.increment();
+            LOG.error("Could not read the search index", e);
+            return;
+        }
+        List<Long> stale = new ArrayList<>();
+        for (ProductVersion product : productRepository.findAllVersions()) {
+            Long version = indexed.remove(product.productId());
+            if (version == null || version != product.version()) {
+                stale.add(product.productId());
+            }
+        }
+        // Left over: products deleted from the database
+        indexed.keySet().forEach(this::delete);
+        for (int i = 0; i < stale.size(); i += REINDEX_BATCH_SIZE) {
+            indexAll(productRepository.findAllWithCategoryByProductIdIn(
+                    stale.subList(i, Math.min(i + REINDEX_BATCH_SIZE, stale.size()))));
+        }
+        if (!stale.isEmpty() || !indexed.isEmpty()) {
+            LOG.info("Search index reconciled in {} ms: {} products reindexed, {} removed",
+                    System.currentTimeMillis() - start, stale.size(), indexed.size());
+        }
+    }
+
+    @Override
+    public void index(Product product) {
+        indexAll(List.of(product));
+    }
+
+    @Override
+    public void indexAll(List<Product> products) {
+        try {
+            for (Product product : products) {
+                writer.updateDocument(new Term(ID, product.getProductId().toString()), toDocument(product));
+            }
+            commit();
+        } catch (IOException e) {
+            // The database write already happened, the stale index entries are fixed by the next reconcile
+            failures.increment();
+            LOG.error("Could not index products", e);
+        }
+    }
+
+    @Override
+    public void delete(Long productId) {
+        try {
+            writer.deleteDocuments(new Term(ID, productId.toString()));
+            commit();
+        } catch (IOException e) {
+            failures.increment();
+            LOG.error("Could not remove product {} from the search index", productId, e);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return writer.getDocStats().numDocs == 0;
+    }
+
+    @Override
+    public ProductSearchResult search(String keyword, String category, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        Query query = buildQuery(keyword, category);
+        Sort sort = buildSort(sortBy, sortOrder);
+        int offset = pageNumber * pageSize;
+        IndexSearcher searcher = acquire();
+        try {
+            TopFieldDocs topDocs = searcher.search(query, offset + pageSize, sort, true);
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            List<Long> productIds = productIds(Arrays.copyOfRange(hits, Math.min(offset, hits.length), hits.length));
+            return new ProductSearchResult(productIds, (long) searcher.count(query), null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @Override
+    public ProductSearchResult searchAfter(String keyword, String category, String after, Integer pageSize, String sortBy, String sortOrder) {
+        Query query = buildQuery(keyword, category);
+        Sort sort = buildSort(sortBy, sortOrder);
+        IndexSearcher searcher = acquire();
+        try {
+            // One extra hit tells whether there is a next page
+            TopFieldDocs topDocs = after == null || after.isEmpty()
+                    ? searcher.search(query, pageSize + 1, sort, true)
+                    : searcher.searchAfter(toFieldDoc(ProductCursor.decode(after, sortBy)), query, pageSize + 1, sort, true);
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            boolean hasNext = hits.length > pageSize;
+            ScoreDoc[] page = hasNext ? Arrays.copyOf(hits, pageSize) : hits;
+            String nextCursor = hasNext ? toCursor((FieldDoc) page[page.length - 1], sortBy).encode() : null;
+            return new ProductSearchResult(productIds(page), null, nextCursor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private void commit() throws IOException {
+        writer.commit();
+        searcherManager.maybeRefresh();
+    }
+
+    // Product id to indexed version, -1 for documents written before versions were indexed
+    private Map<Long, Long> indexedVersions() throws IOException {
+        Map<Long, Long> versions = new HashMap<>();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                LeafReader reader = leaf.reader();
+                Bits liveDocs = reader.getLiveDocs();
+                NumericDocValues productIds = DocValues.getNumeric(reader, PRODUCT_ID);
+                NumericDocValues productVersions = DocValues.getNumeric(reader, VERSION);
+                for (int doc = productIds.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = productIds.nextDoc()) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        long version = productVersions.advanceExact(doc) ? productVersions.longValue() : -1;
+                        versions.put(productIds.longValue(), version);
+                    }
+                }
+            }
+        } finally {
+            release(searcher);
+        }
+        return versions;
+    }
+
+    private static Document toDocument(Product product) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, product.getProductId().toString(), Field.Store.NO));
+        doc.add(new NumericDocValuesField(PRODUCT_ID, product.getProductId()));
+        doc.add(new NumericDocValuesField(VERSION, product.getVersion()));
+        doc.add(new TextField(NAME, Objects.toString(product.getProductName(), ""), Field.Store.NO));
+        doc.add(new TextField(DESCRIPTION, Objects.toString(product.getDescription(), ""), Field.Store.NO));
+        if (product.getCategory() != null) {
+            String categoryName = Objects.toString(product.getCategory().getCategoryName(), "");
+            doc.add(new TextField(CATEGORY, categoryName, Field.Store.NO));
+            doc.add(new StringField(CATEGORY_KEY, categoryName.toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        // Doc values for sorting by the same fields as the database backed endpoints
+        doc.add(new SortedDocValuesField("productName", new BytesRef(Objects.toString(product.getProductName(), ""))));
+        doc.add(new DoubleDocValuesField("price", product.getPrice()));
+        doc.add(new DoubleDocValuesField("specialPrice", product.getSpecialPrice()));
+        doc.add(new DoubleDocValuesField("discount", product.getDiscount()));
+        return doc;
+    }
+
+    // Every term has to match in one of the fields; the last term also matches as a prefix for search-as-you-type
+    private Query buildQuery(String keyword, String category) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        List<String> terms = analyze(keyword);
+        for (int i = 0; i < terms.size(); i++) {
+            boolean last = i == terms.size() - 1;
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            for (Map.Entry<String, Float> field : SEARCH_FIELDS.entrySet()) {
+                Term term = new Term(field.getKey(), terms.get(i));
+                anyField.add(new BoostQuery(new TermQuery(term), field.getValue()), BooleanClause.Occur.SHOULD);
+                if (last) {
+                    anyField.add(new BoostQuery(new PrefixQuery(term), field.getValue() / 2), BooleanClause.Occur.SHOULD);
+                }
+            }
+            query.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        if (category != null && !category.isEmpty()) {
+            query.add(new TermQuery(new Term(CATEGORY_KEY, category.toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream tokens = analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                terms.add(term.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    // productId is always the last sort field: it makes the order total and carries the id of each hit
+    private static Sort buildSort(String sortBy, String sortOrder) {
+        SortField productId = new SortField(PRODUCT_ID, SortField.Type.LONG, !Objects.equals(sortOrder, "asc"));
+        if (SORT_BY_RELEVANCE.equals(sortBy)) {
+            return new Sort(SortField.FIELD_SCORE, new SortField(PRODUCT_ID, SortField.Type.LONG));
+        }
+        ProductCursor.checkSortField(sortBy);
+        if (sortBy.equals(PRODUCT_ID)) {
+            return new Sort(productId);
+        }
+        SortField.Type type = sortBy.equals("productName") ? SortField.Type.STRING : SortField.Type.DOUBLE;
+        return new Sort(new SortField(sortBy, type, !Objects.equals(sortOrder, "asc")), productId);
+    }
+
+    private static List<Long> productIds(ScoreDoc[] hits) {
+        List<Long> productIds = new ArrayList<>(hits.length);
+        for (ScoreDoc hit : hits) {
+            Object[] fields = ((FieldDoc) hit).fields;
+            productIds.add((Long) fields[fields.length - 1]);
+        }
+        return productIds;
+    }
+
+    private static ProductCursor toCursor(FieldDoc hit, String sortBy) {
+        Long productId = (Long) hit.fields[hit.fields.length - 1];
+        if (sortBy.equals(PRODUCT_ID)) {
+            return new ProductCursor(sortBy, productId, productId);
+        }
+        Object value = hit.fields[0];
+        Comparable<?> sortValue = value instanceof BytesRef bytes ? bytes.utf8ToString() : (Comparable<?>) value;
+        return new ProductCursor(sortBy, productId, sortValue);
+    }
+
+    private static FieldDoc toFieldDoc(ProductCursor cursor) {
+        Object[] fields = cursor.getSortBy().equals(PRODUCT_ID)
+                ? new Object[]{cursor.getProductId()}
+                : new Object[]{cursor.getSortValue() instanceof String name ? new BytesRef(name) : cursor.getSortValue(),
+                cursor.getProductId()};
+        return new FieldDoc(Integer.MAX_VALUE, Float.NaN, fields);
+    }
+
+    private IndexSearcher acquire() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            LOG.warn("Could not release index searcher", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.OutboxEvent;
+import com.ecommerce.project.payload.OrderPlacedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Order confirmation, sent after checkout instead of during it. Logged until an email sender is configured.
+@Component
+public class OrderConfirmationHandler implements OutboxEventHandler {
+    public static final Logger LOG = LoggerFactory.getLogger(OrderConfirmationHandler.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public String eventType() {
+        return OrderPlacedEvent.TYPE;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        OrderPlacedEvent orderPlaced = objectMapper.readValue(event.getPayload(), OrderPlacedEvent.class);
+        LOG.info("Order {} confirmed to {}, total {}", orderPlaced.getOrderId(), orderPlaced.getEmail(),
+                orderPlaced.getTotalAmount());
+    }
+}
@@ -2,18 +2,20 @@ package com.ecommerce.project.service;
 
 import com.ecommerce.project.exceptions.ApiException;
 import com.ecommerce.project.exceptions.ResourceNotFoundException;
+import com.ecommerce.project.mapper.OrderMapper;
 import com.ecommerce.project.model.*;
 import com.ecommerce.project.payload.OrderDTO;
-import com.ecommerce.project.payload.OrderItemDTO;
+import com.ecommerce.project.payload.OrderPlacedEvent;
 import com.ecommerce.project.repositories.*;
 import jakarta.transaction.Transactional;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderServiceImpl implements OrderService {
@@ -34,18 +36,21 @@ public class OrderServiceImpl implements OrderService {
     PaymentRepository paymentRepository;
 
     @Autowired
-    CartService cartService;
+    CartItemRepository cartItemRepository;
 
     @Autowired
-    ModelMapper modelMapper;
+    OrderMapper orderMapper;
 
     @Autowired
-    ProductRepository productRepository;
+    InventoryService inventoryService;
+
+    @Autowired
+    OutboxService outboxService;
 
     @Override
     @Transactional
     public OrderDTO placeOrder(String emailId, Long addressId, String paymentMethod, String pgName, String pgPaymentId, String pgStatus, String pgResponseMessage) {
-        Cart cart = cartRepository.findCartByEmail(emailId);
+        Cart cart = cartRepository.findCartWithItemsByEmail(emailId);
         if (cart == null) {
             throw new ResourceNotFoundException("Cart", "email", emailId);
         }
@@ -53,10 +58,20 @@ public class OrderServiceImpl implements OrderService {
         Address address = addressRepository.findById(addressId)
                 .orElseThrow(() -> new ResourceNotFoundException("Address", "addressId", addressId));
 
+        List<CartItem> cartItems = cart.getCartItems();
+        if (cartItems.isEmpty()) {
+            throw new ApiException("Cart is empty");
+        }
+
+        // Fails before anything is written when a product is out of stock
+        Map<Long, Integer> quantities = cartItems.stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getProductId(), CartItem::getQuantity, Integer::sum));
+        inventoryService.reserve(quantities);
+
         Order order = new Order();
         order.setEmail(emailId);
         order.setOrderDate(LocalDate.now());
-        order.setTotalAmount(cart.getTotalPrice());
+        order.setTotalAmount(cart.getTotalPrice().doubleValue());
         order.setOrderStatus("Order Accepted !");
         order.setAddress(address);
 
@@ -67,11 +82,6 @@ public class OrderServiceImpl implements OrderService {
 
         Order savedOrder = orderRepository.save(order);
 
-        List<CartItem> cartItems = cart.getCartItems();
-        if (cartItems.isEmpty()) {
-            throw new ApiException("Cart is empty");
-        }
-
         List<OrderItem> orderItems = new ArrayList<>();
         for (CartItem cartItem : cartItems) {
             OrderItem orderItem = new OrderItem();
@@ -83,24 +93,18 @@ public class OrderServiceImpl implements OrderService {
             orderItems.add(orderItem);
         }
 
+        // Sequence generated ids, so Hibernate sends the inserts as one JDBC batch
         orderItems = orderItemRepository.saveAll(orderItems);
 
-        cart.getCartItems().forEach(item -> {
-            int quantity = item.getQuantity();
-            Product product = item.getProduct();
-
-            // Reduce stock quantity
-            product.setQuantity(product.getQuantity() - quantity);
-
-            // Save product back to the database
-            productRepository.save(product);
+        // One DELETE empties the cart, the stock was already taken by the reservation
+        cartItemRepository.deleteAllByCartId(cart.getCartId());
 
-            // Remove items from cart
-            cartService.deleteProductFromCart(cart.getCartId(), item.getProduct().getProductId());
-        });
+        // Follow-up work (confirmation and the like) runs after the commit, see OutboxDispatcher
+        outboxService.publish(OrderPlacedEvent.TYPE, savedOrder.getOrderId(),
+                new OrderPlacedEvent(savedOrder.getOrderId(), emailId, savedOrder.getTotalAmount()));
 
-        OrderDTO orderDTO = modelMapper.map(savedOrder, OrderDTO.class);
-        orderItems.forEach(item -> orderDTO.getOrderItems().add(modelMapper.map(item, OrderItemDTO.class)));
+        OrderDTO orderDTO = orderMapper.toDto(savedOrder);
+        orderItems.forEach(item -> orderDTO.getOrderItems().add(orderMapper.toDto(item)));
 
         orderDTO.setAddressId(addressId);
 
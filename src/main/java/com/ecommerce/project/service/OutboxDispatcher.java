@@ -0,0 +1,152 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.OutboxEvent;
+import com.ecommerce.project.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Delivers outbox events to their handlers. A batch is claimed in a short transaction by pushing its availableAt
+// forward by the lease, then handled in parallel outside any transaction. Delivered events are deleted, failed ones
+// are retried with a growing delay. If an instance dies mid-batch, its events are picked up again once the lease
+// has passed, so delivery is at least once.
+@Component
+public class OutboxDispatcher {
+    public static final Logger LOG = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private List<OutboxEventHandler> handlers;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.app.outboxBatchSize}")
+    private int batchSize;
+    @Value("${spring.app.outboxThreads}")
+    private int threads;
+    // Must be longer than handling a whole batch takes, or events are handed out twice
+    @Value("${spring.app.outboxLeaseSeconds}")
+    private long leaseSeconds;
+    @Value("${spring.app.outboxMaxRetryDelaySeconds}")
+    private long maxRetryDelaySeconds;
+
+    // Not a bean, an Executor bean would replace Spring Boot's applicationTaskExecutor
+    private final ThreadPoolTaskExecutor handlerExecutor = new ThreadPoolTaskExecutor();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private Map<String, List<OutboxEventHandler>> handlersByType;
+    private Timer deliveryLag;
+    private Counter failures;
+
+    @PostConstruct
+    public void init() {
+        handlerExecutor.setCorePoolSize(threads);
+        handlerExecutor.setMaxPoolSize(threads);
+        // A whole batch fits, so it is never rejected
+        handlerExecutor.setQueueCapacity(batchSize);
+        handlerExecutor.setThreadNamePrefix("outbox-");
+        handlerExecutor.initialize();
+        handlersByType = handlers.stream().collect(Collectors.groupingBy(OutboxEventHandler::eventType));
+
+        // Age of the oldest undelivered event as of the last poll, and time from commit to delivery per event
+        meterRegistry.gauge("outbox.lag", lagMillis, AtomicLong::get);
+        deliveryLag = meterRegistry.timer("outbox.delivery.lag");
+        failures = meterRegistry.counter("outbox.delivery.failures");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        handlerExecutor.shutdown();
+    }
+
+    // Keeps going while batches come back full, so a backlog is worked off without waiting for the next poll
+    @Scheduled(fixedDelayString = "${spring.app.outboxPollIntervalMillis}")
+    public void dispatch() {
+        int dispatched;
+        do {
+            dispatched = dispatchBatch();
+        } while (dispatched == batchSize);
+    }
+
+    private int dispatchBatch() {
+        Instant now = Instant.now();
+        List<OutboxEvent> batch = new TransactionTemplate(transactionManager).execute(status -> {
+            List<OutboxEvent> due = outboxEventRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+            due.forEach(event -> event.setAvailableAt(now.plusSeconds(leaseSeconds)));
+            return due;
+        });
+        Instant oldest = outboxEventRepository.findOldestCreatedAt();
+        lagMillis.set(oldest == null ? 0 : Duration.between(oldest, now).toMillis());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Throwable>> outcomes = batch.stream()
+                .map(event -> CompletableFuture.runAsync(() -> deliver(event), handlerExecutor)
+                        .handle((result, e) -> e))
+                .toList();
+        CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new)).join();
+
+        List<Long> delivered = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            Throwable error = outcomes.get(i).join();
+            if (error == null) {
+                delivered.add(event.getEventId());
+                deliveryLag.record(Duration.between(event.getCreatedAt(), Instant.now()));
+            } else {
+                retryLater(event, error);
+            }
+        }
+        outboxEventRepository.deleteAllByIdInBatch(delivered);
+        return batch.size();
+    }
+
+    private void deliver(OutboxEvent event) {
+        for (OutboxEventHandler handler : handlersByType.getOrDefault(event.getEventType(), List.of())) {
+            try {
+                handler.handle(event);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // 2, 4, 8 ... seconds, capped
+    private void retryLater(OutboxEvent event, Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        failures.increment();
+        LOG.warn("Delivery of outbox event {} ({}) failed, attempt {}", event.getEventId(), event.getEventType(),
+                event.getAttempts() + 1, cause);
+        long delaySeconds = Math.min(maxRetryDelaySeconds, 1L << Math.min(event.getAttempts() + 1, 20));
+        String message = String.valueOf(cause.getMessage());
+        outboxEventRepository.reschedule(event.getEventId(), Instant.now().plusSeconds(delaySeconds),
+                message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.OutboxEvent;
+
+// Consumer of outbox events. Delivery is at least once and in no particular order, so handlers must be idempotent.
+// Throwing leaves the event in the outbox for another attempt.
+public interface OutboxEventHandler {
+
+    String eventType();
+
+    void handle(OutboxEvent event) throws Exception;
+}
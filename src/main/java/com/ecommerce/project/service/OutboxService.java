@@ -0,0 +1,7 @@
+package com.ecommerce.project.service;
+
+public interface OutboxService {
+
+    // Stores the event in the caller's transaction, it is delivered to the OutboxEventHandlers after the commit
+    void publish(String eventType, Long aggregateId, Object payload);
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.OutboxEvent;
+import com.ecommerce.project.repositories.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // An event without the business transaction around it could be delivered for changes that never commit
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void publish(String eventType, Long aggregateId, Object payload) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(eventType, aggregateId, objectMapper.writeValueAsString(payload),
+                    Instant.now()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the " + eventType + " event", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecommerce.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Short lived product counts per filter, so cursor paged requests asking for a total do not run count(*) every time.
+// Totals are approximate: they may lag behind inserts and deletes by up to the TTL.
+@Component
+public class ProductCountCache {
+    private final Cache<String, Long> cache;
+
+    public ProductCountCache(MeterRegistry meterRegistry,
+                             @Value("${spring.app.productCountCacheTtlSeconds}") long ttlSeconds) {
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .<String, Long>build(), "productCountCache");
+    }
+
+    public long count(String filterKey, Supplier<Long> counter) {
+        return cache.get(filterKey, key -> counter.get());
+    }
+}
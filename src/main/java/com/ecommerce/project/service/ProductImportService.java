@@ -0,0 +1,9 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.payload.ProductImportResult;
+
+import java.io.InputStream;
+
+public interface ProductImportService {
+    ProductImportResult importProducts(InputStream input, String format, Integer chunkSize);
+}
@@ -0,0 +1,260 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.ApiException;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductImportError;
+import com.ecommerce.project.payload.ProductImportResult;
+import com.ecommerce.project.payload.ProductImportRow;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Streams CSV or NDJSON rows and writes them in chunks: one transaction and one JDBC batch per chunk,
+// with the persistence context cleared after each chunk so memory does not grow with the file size.
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+    public static final Logger LOG = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CsvMapper csvMapper;
+
+    @Autowired
+    private Validator validator;
+
+    // Absent when search.index.enabled=false
+    @Autowired(required = false)
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${spring.app.productImportChunkSize}")
+    private int defaultChunkSize;
+
+    private record PendingRow(long row, Product product) {
+    }
+
+    @Override
+    public ProductImportResult importProducts(InputStream input, String format, Integer chunkSize) {
+        int size = chunkSize != null && chunkSize > 0 ? chunkSize : defaultChunkSize;
+        long start = System.nanoTime();
+        ProductImportResult result = new ProductImportResult();
+        // Categories are resolved once per import, products only keep a reference to the id
+        Map<String, Optional<Category>> categories = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        List<PendingRow> chunk = new ArrayList<>(size);
+
+        try (MappingIterator<ProductImportRow> rows = openReader(input, format)) {
+            while (true) {
+                ProductImportRow row;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    result.setRowsRead(result.getRowsRead() + 1);
+                    row = rows.nextValue();
+                } catch (JsonMappingException e) {
+                    // Bad value in a row, the iterator skips to the next row
+                    fail(result, result.getRowsRead(), null, e.getOriginalMessage());
+                    continue;
+                }
+                Product product = toProduct(result, row, categories, seen);
+                if (product != null) {
+                    chunk.add(new PendingRow(result.getRowsRead(), product));
+                }
+                if (chunk.size() >= size) {
+                    writeChunk(result, chunk, categories);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            // Malformed input, the rows before it are still imported
+            fail(result, result.getRowsRead(), null, "Could not parse input: " + e.getMessage());
+        }
+        writeChunk(result, chunk, categories);
+        if (result.getImported() > 0) {
+            eventPublisher.publishEvent(new CatalogChangedEvent(null));
+        }
+
+        result.setDurationMs((System.nanoTime() - start) / 1_000_000);
+        result.setRowsPerSecond(result.getRowsRead() * 1000d / Math.max(1, result.getDurationMs()));
+        LOG.info("Imported {} of {} products in {} ms ({} rows/s), {} duplicates, {} failed", result.getImported(),
+                result.getRowsRead(), result.getDurationMs(), Math.round(result.getRowsPerSecond()),
+                result.getDuplicates(), result.getFailed());
+        return result;
+    }
+
+    private MappingIterator<ProductImportRow> openReader(InputStream input, String format) {
+        try {
+            return switch (format) {
+                case "csv" -> csvMapper.readerFor(ProductImportRow.class)
+                        .with(CsvSchema.emptySchema().withHeader())
+                        .readValues(input);
+                case "ndjson" -> objectMapper.readerFor(ProductImportRow.class).readValues(input);
+                default -> throw new ApiException("Unsupported import format: " + format + ", use csv or ndjson");
+            };
+        } catch (IOException e) {
+            throw new ApiException("Could not read import: " + e.getMessage());
+        }
+    }
+
+    private Product toProduct(ProductImportResult result, ProductImportRow row, Map<String, Optional<Category>> categories,
+                              Set<String> seen) {
+        Optional<Category> category = resolveCategory(row, categories);
+        if (category.isEmpty()) {
+            fail(result, result.getRowsRead(), row.getProductName(), "Category not found: "
+                    + (row.getCategoryId() != null ? row.getCategoryId() : row.getCategoryName()));
+            return null;
+        }
+        if (row.getPrice() == null) {
+            fail(result, result.getRowsRead(), row.getProductName(), "price is required");
+            return null;
+        }
+        double discount = row.getDiscount() != null ? row.getDiscount() : 0d;
+        Product product = new Product();
+        product.setProductName(row.getProductName());
+        product.setDescription(row.getDescription());
+        product.setImage(row.getImage());
+        product.setQuantity(row.getQuantity() != null ? row.getQuantity() : 0);
+        product.setPrice(row.getPrice());
+        product.setDiscount(discount);
+        product.setSpecialPrice(row.getPrice() - discount * 0.01d * row.getPrice());
+        product.setCategory(category.get());
+
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            fail(result, result.getRowsRead(), row.getProductName(), violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.joining(", ")));
+            return null;
+        }
+        if (!seen.add(category.get().getCategoryId() + "|" + product.getProductName())) {
+            duplicate(result, result.getRowsRead(), product.getProductName());
+            return null;
+        }
+        return product;
+    }
+
+    private Optional<Category> resolveCategory(ProductImportRow row, Map<String, Optional<Category>> categories) {
+        if (row.getCategoryId() != null) {
+            return categories.computeIfAbsent("id:" + row.getCategoryId(),
+                    key -> categoryRepository.findById(row.getCategoryId()));
+        }
+        if (row.getCategoryName() != null) {
+            return categories.computeIfAbsent("name:" + row.getCategoryName(),
+                    key -> Optional.ofNullable(categoryRepository.findByCategoryName(row.getCategoryName())));
+        }
+        return Optional.empty();
+    }
+
+    private void writeChunk(ProductImportResult result, List<PendingRow> chunk, Map<String, Optional<Category>> categories) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<PendingRow> newRows = withoutExistingProducts(result, chunk);
+        Map<Long, Category> categoriesById = new HashMap<>();
+        categories.values().forEach(category -> category.ifPresent(c -> categoriesById.put(c.getCategoryId(), c)));
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                for (PendingRow pending : newRows) {
+                    Product product = pending.product();
+                    // A reference avoids loading (and cascading into) the detached category
+                    product.setCategory(entityManager.getReference(Category.class, product.getCategory().getCategoryId()));
+                    entityManager.persist(product);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (RuntimeException e) {
+            LOG.warn("Product import chunk of {} rows failed", newRows.size(), e);
+            newRows.forEach(pending -> fail(result, pending.row(), pending.product().getProductName(),
+                    "Chunk failed: " + e.getMessage()));
+            return;
+        }
+        result.setImported(result.getImported() + newRows.size());
+
+        List<Product> imported = newRows.stream().map(PendingRow::product).toList();
+        imported.forEach(product -> product.setCategory(categoriesById.get(product.getCategory().getCategoryId())));
+        if (productSearchIndex != null) {
+            productSearchIndex.indexAll(imported);
+        }
+    }
+
+    // One indexed lookup per category in the chunk instead of one query per row
+    private List<PendingRow> withoutExistingProducts(ProductImportResult result, List<PendingRow> chunk) {
+        Map<Long, List<PendingRow>> byCategory = chunk.stream()
+                .collect(Collectors.groupingBy(pending -> pending.product().getCategory().getCategoryId()));
+        List<PendingRow> newRows = new ArrayList<>(chunk.size());
+        byCategory.forEach((categoryId, rows) -> {
+            Set<String> existing = new HashSet<>(productRepository.findExistingProductNames(categoryId,
+                    rows.stream().map(pending -> pending.product().getProductName()).toList()));
+            for (PendingRow pending : rows) {
+                if (existing.contains(pending.product().getProductName())) {
+                    duplicate(result, pending.row(), pending.product().getProductName());
+                } else {
+                    newRows.add(pending);
+                }
+            }
+        });
+        return newRows;
+    }
+
+    private static void duplicate(ProductImportResult result, long row, String productName) {
+        result.setDuplicates(result.getDuplicates() + 1);
+        addError(result, row, productName, "Product already exists");
+    }
+
+    private static void fail(ProductImportResult result, long row, String productName, String message) {
+        result.setFailed(result.getFailed() + 1);
+        addError(result, row, productName, message);
+    }
+
+    private static void addError(ProductImportResult result, long row, String productName, String message) {
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ProductImportError(row, productName, message));
+        }
+    }
+}
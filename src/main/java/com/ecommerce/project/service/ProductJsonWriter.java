@@ -0,0 +1,116 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductDto;
+import com.ecommerce.project.payload.ProductResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Writes offset pages of products as the JSON of their ProductResponse for ProductPageCache. The JSON of every
+// product is kept as a fragment and spliced into the page, so a page missing from the page cache only maps and
+// serializes the products that changed since they were written. A fragment is keyed by the product id and used only
+// for the version of the product it was written from: an updated product never matches its old fragment, whatever
+// the order in which an update and a page load race.
+@Component
+public class ProductJsonWriter {
+
+    private record Fragment(long version, SerializedString json) {
+    }
+
+    private static final String FRAGMENTS = ProductJsonWriter.class.getName() + ".fragments";
+
+    // Replaces the content of ProductResponse when serialized by envelopeWriter
+    private abstract static class SplicedContent {
+        @JsonSerialize(using = FragmentsSerializer.class)
+        abstract List<ProductDto> getContent();
+    }
+
+    // SerializedString keeps its UTF-8 bytes, they are copied into the output as they are
+    static class FragmentsSerializer extends JsonSerializer<Object> {
+        @Override
+        public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartArray();
+            for (SerializedString fragment : fragmentsOf(provider)) {
+                generator.writeRawValue(fragment);
+            }
+            generator.writeEndArray();
+        }
+
+        // For a mapper that leaves out empty values
+        @Override
+        public boolean isEmpty(SerializerProvider provider, Object value) {
+            return fragmentsOf(provider).isEmpty();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<SerializedString> fragmentsOf(SerializerProvider provider) {
+            return (List<SerializedString>) provider.getAttribute(FRAGMENTS);
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter envelopeWriter;
+    private final Cache<Long, Fragment> fragments;
+
+    public ProductJsonWriter(MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                             @Value("${spring.app.productFragmentCacheMaxSize}") long maxSize) {
+        this.objectMapper = objectMapper;
+        // A copy, the mix-in must not change how the application serializes ProductResponse
+        this.envelopeWriter = objectMapper.copy()
+                .addMixIn(ProductResponse.class, SplicedContent.class)
+                .writerFor(ProductResponse.class);
+        this.fragments = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .<Long, Fragment>build(), "productFragmentCache");
+    }
+
+    // The envelope is the application's own serialization of ProductResponse, only the content is spliced in
+    public byte[] write(Page<Product> page, Function<Product, ProductDto> toDto) {
+        List<SerializedString> content = new ArrayList<>(page.getNumberOfElements());
+        try {
+            for (Product product : page) {
+                content.add(fragmentOf(product, toDto));
+            }
+            ProductResponse envelope = new ProductResponse(List.of(), page.getNumber(), page.getSize(),
+                    page.getTotalElements(), page.getTotalPages(), page.isLast(), null);
+            return envelopeWriter.withAttribute(FRAGMENTS, content).writeValueAsBytes(envelope);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize the product page", e);
+        }
+    }
+
+    // The version already tells an updated product apart, evicting only frees the room sooner
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        fragments.invalidateAll(event.productIds());
+    }
+
+    private SerializedString fragmentOf(Product product, Function<Product, ProductDto> toDto) throws IOException {
+        Fragment fragment = fragments.getIfPresent(product.getProductId());
+        if (fragment == null || fragment.version() != product.getVersion()) {
+            fragment = new Fragment(product.getVersion(),
+                    new SerializedString(objectMapper.writeValueAsString(toDto.apply(product))));
+            fragments.put(product.getProductId(), fragment);
+        }
+        return fragment.json();
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecommerce.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Serialized offset paged product listings, so hot pages skip the queries, the mapping and Jackson (missing pages are
+// written by ProductJsonWriter). Bounded by the bytes held and evicted by Caffeine's W-TinyLFU policy; concurrent
+// misses on one page load it once.
+// Every key carries the generation of what its page depends on: a change bumps the generation, so a page read before
+// the change is never served after it, even when its load finishes after the invalidation. Pages of one category
+// depend on that category only, the other listings (which may filter by category name or keyword) on every change.
+// A change made by another instance is only known from the catalog version and drops every page.
+// Pages of older generations can no longer be hit, but W-TinyLFU admits and evicts by access frequency, not by
+// generation: a popular page made stale keeps its high frequency and would hold its bytes against new pages until the
+// TTL. A change therefore schedules a sweep that removes them, off the committing thread and once for a burst of
+// changes; a page whose load straddled the change is left for the next sweep or the TTL. Stock changed by orders
+// arrives through StockChangePublisher, so a page may show stock up to spring.app.catalogStockRefreshMillis old.
+@Component
+public class ProductPageCache {
+
+    public record Query(Long categoryId, String keyword, String category, int pageNumber, int pageSize,
+                        String sortBy, String sortOrder) {
+
+        // Empty filters are no filters, and any sort order but "asc" is descending
+        public static Query listing(String keyword, String category, int pageNumber, int pageSize,
+                                    String sortBy, String sortOrder) {
+            return new Query(null, emptyToNull(keyword), emptyToNull(category), pageNumber, pageSize,
+                    sortBy, normalize(sortOrder));
+        }
+
+        public static Query category(Long categoryId, int pageNumber, int pageSize, String sortBy, String sortOrder) {
+            return new Query(categoryId, null, null, pageNumber, pageSize, sortBy, normalize(sortOrder));
+        }
+
+        private static String emptyToNull(String filter) {
+            return filter == null || filter.isEmpty() ? null : filter;
+        }
+
+        private static String normalize(String sortOrder) {
+            return Objects.equals(sortOrder, "asc") ? "asc" : "desc";
+        }
+    }
+
+    private record Key(Query query, long generation) {
+    }
+
+    private final Cache<Key, byte[]> cache;
+
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong everythingChanged = new AtomicLong();
+    private final Map<Long, Long> categoryChanged = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweepScheduled = new AtomicBoolean();
+
+    public ProductPageCache(MeterRegistry meterRegistry,
+                            @Value("${spring.app.productPageCacheMaxBytes}") long maxBytes,
+                            @Value("${spring.app.productPageCacheTtlSeconds}") long ttlSeconds) {
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, byte[]>weigher((key, page) -> page.length)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build(), "productPageCache");
+    }
+
+    // Failed loads are not cached, their exception reaches the caller
+    public byte[] get(Query query, Supplier<byte[]> loader) {
+        return cache.get(new Key(query, generationOf(query)), key -> loader.get());
+    }
+
+    // After the commit: invalidated earlier, a concurrent miss could cache the old data again
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        long change = changes.incrementAndGet();
+        if (event.categoryId() == null) {
+            everythingChanged.accumulateAndGet(change, Math::max);
+        } else {
+            categoryChanged.merge(event.categoryId(), change, Math::max);
+        }
+        scheduleSweep();
+    }
+
+    // Published while the new catalog version is taken, before the page is read
+    @EventListener
+    public void onCatalogChangedElsewhere(CatalogChangedElsewhereEvent event) {
+        everythingChanged.accumulateAndGet(changes.incrementAndGet(), Math::max);
+        scheduleSweep();
+    }
+
+    // A change made while a sweep runs schedules the next one
+    private void scheduleSweep() {
+        if (sweepScheduled.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(() -> {
+                sweepScheduled.set(false);
+                cache.asMap().keySet().removeIf(key -> key.generation() < generationOf(key.query()));
+            });
+        }
+    }
+
+    private long generationOf(Query query) {
+        if (query.categoryId() == null) {
+            return changes.get();
+        }
+        return Math.max(everythingChanged.get(), categoryChanged.getOrDefault(query.categoryId(), 0L));
+    }
+}
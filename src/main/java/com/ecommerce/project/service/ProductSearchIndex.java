@@ -0,0 +1,25 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductSearchResult;
+
+import java.util.List;
+
+// Full-text index over product name, description and category name.
+// The products table stays the source of truth, the index only returns matching product ids.
+public interface ProductSearchIndex {
+    String SORT_BY_RELEVANCE = "relevance";
+
+    void index(Product product);
+
+    void indexAll(List<Product> products);
+
+    void delete(Long productId);
+
+    boolean isEmpty();
+
+    // sortBy "relevance" ranks by score, the cursor sort fields (see ProductCursor) sort by that field
+    ProductSearchResult search(String keyword, String category, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+
+    ProductSearchResult searchAfter(String keyword, String category, String after, Integer pageSize, String sortBy, String sortOrder);
+}
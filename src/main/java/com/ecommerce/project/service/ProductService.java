@@ -15,8 +15,19 @@ public interface ProductService {
 
     ProductResponse findProductsByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
 
+    // Same pages as getAllProducts and findProductsByCategory, as their JSON for ProductPageCache
+    byte[] getAllProductsJson(String keyword, String category, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+
+    byte[] findProductsByCategoryJson(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+
     ProductResponse findProductsByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
 
+    ProductResponse getAllProductsByCursor(String keyword, String category, String after, Integer pageSize, String sortBy, String sortOrder, boolean withTotal);
+
+    ProductResponse findProductsByCategoryCursor(Long categoryId, String after, Integer pageSize, String sortBy, String sortOrder, boolean withTotal);
+
+    ProductResponse findProductsByKeywordCursor(String keyword, String after, Integer pageSize, String sortBy, String sortOrder, boolean withTotal);
+
     ProductDto updateProduct(Long productId, ProductDto productDto);
 
     ProductDto deleteProduct(Long productId);
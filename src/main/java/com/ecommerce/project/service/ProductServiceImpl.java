@@ -1,32 +1,49 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.config.AppConstants;
 import com.ecommerce.project.exceptions.ApiException;
 import com.ecommerce.project.exceptions.ResourceNotFoundException;
+import com.ecommerce.project.mapper.ProductMapper;
 import com.ecommerce.project.model.Cart;
 import com.ecommerce.project.model.Category;
 import com.ecommerce.project.model.Product;
-import com.ecommerce.project.payload.CartDto;
 import com.ecommerce.project.payload.ProductDto;
 import com.ecommerce.project.payload.ProductResponse;
+import com.ecommerce.project.payload.ProductSearchResult;
 import com.ecommerce.project.repositories.CartRepository;
 import com.ecommerce.project.repositories.CategoryRepository;
 import com.ecommerce.project.repositories.ProductRepository;
+import com.ecommerce.project.util.ProductCursor;
 import io.micrometer.common.util.StringUtils;
-import org.modelmapper.ModelMapper;
+import jakarta.transaction.Transactional;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -45,12 +62,25 @@ public class ProductServiceImpl implements ProductService {
     private ProductRepository productRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ProductMapper productMapper;
 
 
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private ProductCountCache productCountCache;
+
+    @Autowired
+    private ProductJsonWriter productJsonWriter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Absent when search.index.enabled=false, keyword searches then fall back to LIKE queries
+    @Autowired(required = false)
+    private ProductSearchIndex productSearchIndex;
+
     @Value("${project.image}")
     private String imageRootPath;
 
@@ -63,18 +93,18 @@ public class ProductServiceImpl implements ProductService {
         Category category = categoryRepository.findById(categoryId).orElseThrow(
                 () -> new ResourceNotFoundException("Category", "categoryid", categoryId)
         );
-        boolean productIsNotPresent;
-        List<Product> products = category.getProducts();
-        productIsNotPresent = products.stream()
-                .noneMatch(product -> product.getProductName().equals(productDto.getProductName()));
+        boolean productIsNotPresent = !productRepository.existsByCategoryCategoryIdAndProductName(
+                categoryId, productDto.getProductName());
         if (productIsNotPresent) {
 
-            Product newProduct = modelMapper.map(productDto, Product.class);
+            Product newProduct = productMapper.toEntity(productDto);
             newProduct.setCategory(category);
             newProduct.setSpecialPrice(productDto.getPrice() - productDto.getDiscount() * 0.01d * productDto.getPrice());
             Product savedProduct = productRepository.saveAndFlush(newProduct);
+            indexProduct(savedProduct);
+            eventPublisher.publishEvent(new CatalogChangedEvent(categoryId));
 
-            return modelMapper.map(savedProduct, ProductDto.class);
+            return productMapper.toDto(savedProduct);
         } else {
             throw new ApiException("Product already exists");
         }
@@ -82,22 +112,106 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public ProductResponse getAllProducts(String keyword, String category, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
-        Sort sortByAndOrder = getSortByAndOrder(sortBy, sortOrder);
+        return getProductResponse(findAllProductsPage(keyword, category, pageNumber, pageSize, sortBy, sortOrder));
+    }
+
+    @Override
+    public byte[] getAllProductsJson(String keyword, String category, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        return getProductJson(findAllProductsPage(keyword, category, pageNumber, pageSize, sortBy, sortOrder));
+    }
+
+    private Page<Product> findAllProductsPage(String keyword, String category, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        if (useSearchIndex(keyword)) {
+            ProductSearchResult result = productSearchIndex.search(keyword, category, pageNumber, pageSize, sortBy, sortOrder);
+            return new PageImpl<>(loadInOrder(result.getProductIds()),
+                    PageRequest.of(pageNumber, pageSize), result.getTotalHits());
+        }
+        Sort sortByAndOrder = getSortByAndOrder(databaseSortBy(sortBy), sortOrder);
 
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
+        Specification<Product> spec = keywordAndCategorySpec(keyword, category);
+        return productRepository.findAll(spec, pageable);
+    }
+
+    @Override
+    public ProductResponse getAllProductsByCursor(String keyword, String category, String after, Integer pageSize, String sortBy, String sortOrder, boolean withTotal) {
+        if (useSearchIndex(keyword)) {
+            return getSearchSlice(keyword, category, after, pageSize, sortBy, sortOrder, withTotal);
+        }
+        Specification<Product> spec = keywordAndCategorySpec(keyword, category);
+        return getProductSlice(spec, "all|" + keyword + "|" + category, after, pageSize, databaseSortBy(sortBy), sortOrder, withTotal);
+    }
+
+    private boolean useSearchIndex(String keyword) {
+        return productSearchIndex != null && keyword != null && !keyword.isBlank();
+    }
+
+    // Relevance only exists in the search index, the LIKE fallback keeps the default order instead
+    private static String databaseSortBy(String sortBy) {
+        return ProductSearchIndex.SORT_BY_RELEVANCE.equals(sortBy) ? AppConstants.SORT_PRODUCTS_BY : sortBy;
+    }
+
+    private ProductResponse getSearchSlice(String keyword, String category, String after, Integer pageSize,
+                                           String sortBy, String sortOrder, boolean withTotal) {
+        ProductSearchResult result = productSearchIndex.searchAfter(keyword, category, after, pageSize, sortBy, sortOrder);
+        Long total = null;
+        if (withTotal) {
+            total = productSearchIndex.search(keyword, category, 0, 1, sortBy, sortOrder).getTotalHits();
+        }
+        List<Product> products = loadInOrder(result.getProductIds());
+        return getSliceResponse(new SliceImpl<>(products, PageRequest.of(0, pageSize), result.getNextCursor() != null),
+                result.getNextCursor(), total);
+    }
+
+    // The index returns ids in ranking order, the database returns them in any order
+    private List<Product> loadInOrder(List<Long> productIds) {
+        Map<Long, Product> productsById = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private void indexProduct(Product product) {
+        if (productSearchIndex != null) {
+            // The index reads the category name once the session may be gone
+            Hibernate.initialize(product.getCategory());
+            afterCommit(() -> productSearchIndex.index(product));
+        }
+    }
+
+    // The search index is not transactional: written before the commit, a rollback would leave it serving products
+    // that were never saved. Without a transaction the change has already been written.
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Specification<Product> keywordAndCategorySpec(String keyword, String category) {
         Specification<Product> spec = Specification.where(null);
         if (keyword != null && !keyword.isEmpty()) {
-            spec = spec.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.like(criteriaBuilder.lower(root.get("productName")), "%" + keyword.toLowerCase() + "%")
-            );
+            spec = spec.and(nameContainsSpec(keyword));
         }
         if (category != null && !category.isEmpty()) {
             spec = spec.and((root, query, criteriaBuilder) ->
                     criteriaBuilder.like(root.get("category").get("categoryName"), category)
             );
         }
-        Page<Product> productPage = productRepository.findAll(spec, pageable);
-        return getProductResponse(productPage);
+        return spec;
+    }
+
+    private static Specification<Product> nameContainsSpec(String keyword) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.like(criteriaBuilder.lower(root.get("productName")), "%" + keyword.toLowerCase() + "%");
     }
 
     private String constructImageUrl(String imageName) {
@@ -114,31 +228,119 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public ProductResponse findProductsByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        return getProductResponse(findProductsByCategoryPage(categoryId, pageNumber, pageSize, sortBy, sortOrder));
+    }
+
+    @Override
+    public byte[] findProductsByCategoryJson(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        return getProductJson(findProductsByCategoryPage(categoryId, pageNumber, pageSize, sortBy, sortOrder));
+    }
+
+    private Page<Product> findProductsByCategoryPage(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
         Category category = categoryRepository.findById(categoryId).orElseThrow(
                 () -> new ResourceNotFoundException("Category", "categoryid", categoryId)
         );
         Sort sortByAndOrder = getSortByAndOrder(sortBy, sortOrder);
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> productPage = productRepository.findByCategoryOrderByPriceAsc(category, pageable);
-        return getProductResponse(productPage);
+        return productRepository.findByCategoryOrderByPriceAsc(category, pageable);
     }
 
     @Override
     public ProductResponse findProductsByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
-        Sort sortByAndOrder = getSortByAndOrder(sortBy, sortOrder);
+        if (useSearchIndex(keyword)) {
+            return getAllProducts(keyword, null, pageNumber, pageSize, sortBy, sortOrder);
+        }
+        Sort sortByAndOrder = getSortByAndOrder(databaseSortBy(sortBy), sortOrder);
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
         Page<Product> productPage = productRepository.findProductsByProductNameContainingIgnoreCase(keyword, pageable);
         return getProductResponse(productPage);
     }
 
+    @Override
+    public ProductResponse findProductsByCategoryCursor(Long categoryId, String after, Integer pageSize, String sortBy, String sortOrder, boolean withTotal) {
+        if (!categoryRepository.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Category", "categoryid", categoryId);
+        }
+        Specification<Product> spec = (root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get("category").get("categoryId"), categoryId);
+        return getProductSlice(spec, "category|" + categoryId, after, pageSize, sortBy, sortOrder, withTotal);
+    }
+
+    @Override
+    public ProductResponse findProductsByKeywordCursor(String keyword, String after, Integer pageSize, String sortBy, String sortOrder, boolean withTotal) {
+        if (useSearchIndex(keyword)) {
+            return getSearchSlice(keyword, null, after, pageSize, sortBy, sortOrder, withTotal);
+        }
+        return getProductSlice(nameContainsSpec(keyword), "keyword|" + keyword.toLowerCase(), after, pageSize, databaseSortBy(sortBy), sortOrder, withTotal);
+    }
+
+    // Keyset paging: seeks past the cursor instead of skipping rows with an offset and fetches one extra row
+    // to know whether there is a next page, so no count(*) is needed. The total is only computed on request.
+    private ProductResponse getProductSlice(Specification<Product> spec, String filterKey, String after, Integer pageSize,
+                                            String sortBy, String sortOrder, boolean withTotal) {
+        ProductCursor.checkSortField(sortBy);
+        boolean ascending = Objects.equals(sortOrder, "asc");
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = sortBy.equals("productId")
+                ? Sort.by(direction, "productId")
+                : Sort.by(direction, sortBy).and(Sort.by(direction, "productId"));
+
+        Specification<Product> pageSpec = spec;
+        if (after != null && !after.isEmpty()) {
+            ProductCursor cursor = ProductCursor.decode(after, sortBy);
+            pageSpec = spec.and((root, query, criteriaBuilder) -> seekPredicate(criteriaBuilder, root, cursor, ascending));
+        }
+        List<Product> rows = productRepository.findBy(pageSpec, q -> q.sortBy(sort).limit(pageSize + 1).all());
+        boolean hasNext = rows.size() > pageSize;
+        Slice<Product> productSlice = new SliceImpl<>(hasNext ? rows.subList(0, pageSize) : rows,
+                PageRequest.of(0, pageSize, sort), hasNext);
+
+        String nextCursor = null;
+        if (hasNext) {
+            Product last = productSlice.getContent().get(productSlice.getNumberOfElements() - 1);
+            nextCursor = ProductCursor.of(last, sortBy).encode();
+        }
+        Long total = null;
+        if (withTotal) {
+            total = productCountCache.count(filterKey, () -> productRepository.count(spec));
+        }
+        return getSliceResponse(productSlice, nextCursor, total);
+    }
+
+    private ProductResponse getSliceResponse(Slice<Product> productSlice, String nextCursor, Long total) {
+        ProductResponse productResponse = new ProductResponse();
+        productResponse.setContent(toProductDtos(productSlice));
+        productResponse.setPageSize(productSlice.getSize());
+        productResponse.setLastPage(!productSlice.hasNext());
+        productResponse.setNextCursor(nextCursor);
+        if (total != null) {
+            productResponse.setTotalElements(total);
+            productResponse.setTotalPages((int) ((total + productSlice.getSize() - 1) / productSlice.getSize()));
+        }
+        return productResponse;
+    }
+
+    // (sortKey, productId) > (cursorKey, cursorId) for ascending order, < for descending
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<? super T>> Predicate seekPredicate(CriteriaBuilder criteriaBuilder, Root<Product> root,
+                                                                             ProductCursor cursor, boolean ascending) {
+        Expression<Long> id = root.get("productId");
+        Predicate afterId = ascending
+                ? criteriaBuilder.greaterThan(id, cursor.getProductId())
+                : criteriaBuilder.lessThan(id, cursor.getProductId());
+        if (cursor.getSortBy().equals("productId")) {
+            return afterId;
+        }
+        Expression<T> key = root.get(cursor.getSortBy());
+        T value = (T) cursor.getSortValue();
+        Predicate afterKey = ascending
+                ? criteriaBuilder.greaterThan(key, value)
+                : criteriaBuilder.lessThan(key, value);
+        return criteriaBuilder.or(afterKey, criteriaBuilder.and(criteriaBuilder.equal(key, value), afterId));
+    }
+
     private ProductResponse getProductResponse(Page<Product> productPage) {
-        List<ProductDto> products = productPage
-                .stream().map(product -> {
-                    ProductDto prod = modelMapper.map(product, ProductDto.class);
-                    prod.setImage(constructImageUrl(prod.getImage()));
-                    return prod;
-                })
-                .toList();
+        List<ProductDto> products = toProductDtos(productPage);
         if (productPage.isEmpty()) {
             throw new ApiException("No productPage found");
         }
@@ -152,7 +354,26 @@ public class ProductServiceImpl implements ProductService {
         return productResponse;
     }
 
+    // Products whose JSON is already kept are neither mapped nor serialized again
+    private byte[] getProductJson(Page<Product> productPage) {
+        if (productPage.isEmpty()) {
+            throw new ApiException("No productPage found");
+        }
+        return productJsonWriter.write(productPage, this::toProductDto);
+    }
+
+    private List<ProductDto> toProductDtos(Slice<Product> products) {
+        return products.stream().map(this::toProductDto).toList();
+    }
+
+    private ProductDto toProductDto(Product product) {
+        ProductDto prod = productMapper.toDto(product);
+        prod.setImage(constructImageUrl(prod.getImage()));
+        return prod;
+    }
+
     @Override
+    @Transactional
     public ProductDto updateProduct(Long productId, ProductDto productDto) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productid", productId));
@@ -164,37 +385,29 @@ public class ProductServiceImpl implements ProductService {
         product.setSpecialPrice(productDto.getPrice() - productDto.getDiscount() * 0.01d * productDto.getPrice());
 
         Product updatedProduct = productRepository.save(product);
+        indexProduct(updatedProduct);
 
-        List<Cart> carts = cartRepository.findCartsByProductId(productId);
-
-        List<CartDto> cartDTOs = carts.stream().map(cart -> {
-            CartDto cartDTO = modelMapper.map(cart, CartDto.class);
-
-            List<ProductDto> products = cart.getCartItems().stream()
-                    .map(p -> modelMapper.map(p.getProduct(), ProductDto.class)).collect(Collectors.toList());
-
-            cartDTO.setProducts(products);
-
-            return cartDTO;
-
-        }).collect(Collectors.toList());
+        cartService.repriceProductInCarts(productId, updatedProduct.getSpecialPrice(), updatedProduct.getDiscount());
+        eventPublisher.publishEvent(new CatalogChangedEvent(categoryIdOf(updatedProduct), Set.of(productId)));
 
-        cartDTOs.forEach(cart -> cartService.updateProductInCarts(cart.getCartId(), productId));
-
-        return modelMapper.map(updatedProduct, ProductDto.class);
+        return productMapper.toDto(updatedProduct);
     }
 
     @Override
     public ProductDto deleteProduct(Long productId) {
-        ProductDto productDto = productRepository.findById(productId)
-                .map(p -> modelMapper.map(p, ProductDto.class))
+        Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productid", productId));
+        ProductDto productDto = productMapper.toDto(product);
 
         // DELETE
         List<Cart> carts = cartRepository.findCartsByProductId(productId);
         carts.forEach(cart -> cartService.deleteProductFromCart(cart.getCartId(), productId));
 
         productRepository.deleteById(productId);
+        if (productSearchIndex != null) {
+            afterCommit(() -> productSearchIndex.delete(productId));
+        }
+        eventPublisher.publishEvent(new CatalogChangedEvent(categoryIdOf(product), Set.of(productId)));
         return productDto;
     }
 
@@ -207,8 +420,14 @@ public class ProductServiceImpl implements ProductService {
 
         product.setImage(filename);
         productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(categoryIdOf(product), Set.of(productId)));
+
+        return productMapper.toDto(product);
+    }
 
-        return modelMapper.map(product, ProductDto.class);
+    // Reading the id does not initialize the lazy category
+    private static Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getCategoryId() : null;
     }
 
 
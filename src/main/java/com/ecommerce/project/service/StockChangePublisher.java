@@ -0,0 +1,44 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Stock changes with every order. A CatalogChangedEvent per order would bump the catalog version and drop the cached
+// pages on every checkout, so the products whose stock changed are collected and their categories published together
+// once per interval: the stock shown in the public catalog may lag by up to spring.app.catalogStockRefreshMillis.
+@Component
+public class StockChangePublisher {
+    private final Set<Long> changedProductIds = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Called once the new stock is committed
+    public void stockChanged(Collection<Long> productIds) {
+        changedProductIds.addAll(productIds);
+    }
+
+    // A product changed again while publishing is either in this round, whose events are published after it
+    // committed, or left in the set for the next one
+    @Scheduled(fixedDelayString = "${spring.app.catalogStockRefreshMillis}")
+    public void publish() {
+        if (changedProductIds.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = List.copyOf(changedProductIds);
+        changedProductIds.removeAll(productIds);
+        productRepository.findCategoryIdsByProductIdIn(productIds).forEach(categoryId ->
+                eventPublisher.publishEvent(new CatalogChangedEvent(categoryId)));
+    }
+}
@@ -1,10 +1,12 @@
 package com.ecommerce.project.service;
 
 import com.ecommerce.project.payload.StripePaymentDto;
-import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface StripeService {
 
-    PaymentIntent paymentIntent(StripePaymentDto stripePaymentDto) throws StripeException;
+    // Completes on the payment executor, exceptionally with a PaymentGatewayException when Stripe fails or is too slow
+    CompletableFuture<PaymentIntent> paymentIntent(StripePaymentDto stripePaymentDto);
 }
@@ -1,55 +1,138 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.exceptions.PaymentGatewayException;
+import com.ecommerce.project.exceptions.PaymentUnavailableException;
+import com.ecommerce.project.payload.AddressDTO;
 import com.ecommerce.project.payload.StripePaymentDto;
-import com.stripe.Stripe;
+import com.ecommerce.project.repositories.UserRepository;
+import com.ecommerce.project.util.AuthUtil;
+import com.stripe.StripeClient;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Customer;
-import com.stripe.model.CustomerSearchResult;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeSearchResult;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.CustomerCreateParams;
 import com.stripe.param.CustomerSearchParams;
 import com.stripe.param.CustomerUpdateParams;
 import com.stripe.param.PaymentIntentCreateParams;
-import jakarta.annotation.PostConstruct;
-import jakarta.transaction.Transactional;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// No transaction here, so none is held open while waiting for Stripe; the customer lookups commit on their own
 @Service
-@Transactional
 public class StripeServiceImpl implements StripeService {
+    public static final Logger LOG = LoggerFactory.getLogger(StripeServiceImpl.class);
+    private static final String RESOURCE_MISSING = "resource_missing";
 
-    @Value("${stripe.secret.key}")
-    private String stripeApiKey;
+    @Autowired
+    private StripeClient stripeClient;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AuthUtil authUtil;
+    @Autowired
+    private ThreadPoolBulkhead stripeBulkhead;
+    @Autowired
+    private CircuitBreaker stripeCircuitBreaker;
 
-    // Set your secret key. Remember to switch to your live secret key in production.
-    // See your keys here: https://dashboard.stripe.com/apikeys
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = stripeApiKey;
-    }
+    // Upper bound for the whole checkout call (search, update and create), each HTTP call has its own read timeout
+    @Value("${stripe.callTimeoutMillis}")
+    private long callTimeoutMillis;
 
+    // The timeout is inside the circuit breaker, so calls that time out count as failures. While the breaker is
+    // open the returned future fails right away, without using a bulkhead thread.
     @Override
-    public PaymentIntent paymentIntent(StripePaymentDto stripePaymentDto) throws StripeException {
-        CustomerSearchParams searchParams =
-                CustomerSearchParams.builder()
-                        .setQuery(String.format("email:'%s'", stripePaymentDto.getEmail()))
-                        .build();
-        CustomerSearchResult customers = Customer.search(searchParams);
+    public CompletableFuture<PaymentIntent> paymentIntent(StripePaymentDto stripePaymentDto) {
+        // The customer belongs to the logged-in user, never to the email in the request body. Read here, the
+        // principal is bound to the request thread.
+        String email = authUtil.loggedInEmail();
+        return stripeCircuitBreaker.executeCompletionStage(() ->
+                        stripeBulkhead.executeSupplier(() -> createPaymentIntent(stripePaymentDto, email))
+                                .toCompletableFuture()
+                                .orTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS))
+                .toCompletableFuture()
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        throw new PaymentGatewayException("Payment provider did not answer in time", cause);
+                    }
+                    if (cause instanceof CallNotPermittedException) {
+                        throw new PaymentUnavailableException("Payment provider is unavailable, try again later", cause);
+                    }
+                    if (cause instanceof BulkheadFullException) {
+                        throw new PaymentUnavailableException("Too many payments in progress, try again later", cause);
+                    }
+                    throw cause instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(cause);
+                });
+    }
 
-        Customer customer = createOrUpdateCustomerInfo(stripePaymentDto, customers);
+    private PaymentIntent createPaymentIntent(StripePaymentDto stripePaymentDto, String email) {
+        try {
+            String customerId = resolveCustomer(stripePaymentDto, email);
 
-        PaymentIntentCreateParams params = createPaymentAndShippingInfo(stripePaymentDto, customer);
+            PaymentIntentCreateParams params = createPaymentAndShippingInfo(stripePaymentDto, customerId);
 
-        return PaymentIntent.create(params);
+            return stripeClient.v1().paymentIntents().create(params);
+        } catch (StripeException e) {
+            throw new PaymentGatewayException("Payment provider error: " + e.getMessage(), e);
+        }
+    }
+
+    // The customer id is stored on the user after the first checkout, later checkouts skip the search and only
+    // update the customer when the address changed
+    private String resolveCustomer(StripePaymentDto stripePaymentDto, String email) throws StripeException {
+        String addressHash = addressHash(stripePaymentDto);
+        Optional<UserRepository.StripeCustomer> user = userRepository.findStripeCustomerByEmail(email);
+
+        String customerId = user.map(UserRepository.StripeCustomer::getStripeCustomerId).orElse(null);
+        if (customerId != null) {
+            if (addressHash.equals(user.get().getStripeAddressHash())) {
+                return customerId;
+            }
+            try {
+                updateCustomerInfo(stripePaymentDto, customerId);
+            } catch (StripeException e) {
+                if (!RESOURCE_MISSING.equals(e.getCode())) {
+                    throw e;
+                }
+                // Deleted on the Stripe side, look it up again
+                LOG.warn("Stored Stripe customer {} no longer exists", customerId);
+                customerId = null;
+            }
+        }
+        if (customerId == null) {
+            customerId = findOrCreateCustomer(stripePaymentDto, email, addressHash);
+        }
+
+        String storedCustomerId = customerId;
+        user.ifPresent(u -> userRepository.updateStripeCustomer(u.getUserId(), storedCustomerId, addressHash));
+        return customerId;
     }
 
     // Update Payment info, Shipping Address, Tracking information
-    private static PaymentIntentCreateParams createPaymentAndShippingInfo(StripePaymentDto stripePaymentDto, Customer customer) {
+    private static PaymentIntentCreateParams createPaymentAndShippingInfo(StripePaymentDto stripePaymentDto, String customerId) {
         return PaymentIntentCreateParams.builder()
                 .setAmount(stripePaymentDto.getAmount())
                 .setCurrency(stripePaymentDto.getCurrency())
-                .setCustomer(customer.getId())
+                .setCustomer(customerId)
                 .setShipping(
                         PaymentIntentCreateParams.Shipping.builder()
                                 .setAddress(
@@ -75,45 +158,99 @@ public class StripeServiceImpl implements StripeService {
                 .build();
     }
 
-    // Create or update customer with default billing and shipping address
-    private static Customer createOrUpdateCustomerInfo(StripePaymentDto stripePaymentDto, CustomerSearchResult customers) throws StripeException {
-        Customer customer;
-        if (customers.getData().isEmpty()) {
-            CustomerCreateParams createParams =
-                    CustomerCreateParams.builder()
-                            .setName(stripePaymentDto.getName())
-                            .setEmail(stripePaymentDto.getEmail())
-                            .build();
-            customer = Customer.create(createParams);
-        } else {
-            customer = customers.getData().get(0);
+    // Search is only needed for customers created before their id was stored, new customers get the address right away
+    private String findOrCreateCustomer(StripePaymentDto stripePaymentDto, String email, String addressHash) throws StripeException {
+        CustomerSearchParams searchParams =
+                CustomerSearchParams.builder()
+                        .setQuery(String.format("email:'%s'", email))
+                        .build();
+        StripeSearchResult<Customer> customers = stripeClient.v1().customers().search(searchParams);
+        if (!customers.getData().isEmpty()) {
+            String customerId = customers.getData().get(0).getId();
+            updateCustomerInfo(stripePaymentDto, customerId);
+            return customerId;
         }
 
-        customer.update(CustomerUpdateParams.builder()
+        AddressDTO address = stripePaymentDto.getAddress();
+        CustomerCreateParams createParams =
+                CustomerCreateParams.builder()
+                        .setName(stripePaymentDto.getName())
+                        .setEmail(email)
+                        // Billing address, also Used for taxes
+                        .setAddress(
+                                CustomerCreateParams.Address.builder()
+                                        .setLine1(address.getStreet())
+                                        .setCity(address.getCity())
+                                        .setState(address.getState())
+                                        .setPostalCode(address.getPincode())
+                                        .setCountry(address.getCountry())
+                                        .build())
+                        //  Shipping Address, used for the invoice
+                        .setShipping(
+                                CustomerCreateParams.Shipping.builder()
+                                        .setAddress(
+                                                CustomerCreateParams.Shipping.Address.builder()
+                                                        .setLine1(address.getStreet())
+                                                        .setCity(address.getCity())
+                                                        .setState(address.getState())
+                                                        .setPostalCode(address.getPincode())
+                                                        .setCountry(address.getCountry())
+                                                        .build()
+                                        )
+                                        .setName(stripePaymentDto.getName())
+                                        .build())
+                        .build();
+        // Search is eventually consistent, the key stops two concurrent first checkouts from creating two customers
+        RequestOptions requestOptions = RequestOptions.builder()
+                .setIdempotencyKey("customer-" + sha256(email + "\n" + addressHash))
+                .build();
+        return stripeClient.v1().customers().create(createParams, requestOptions).getId();
+    }
+
+    // Default billing and shipping address of the customer
+    private void updateCustomerInfo(StripePaymentDto stripePaymentDto, String customerId) throws StripeException {
+        AddressDTO address = stripePaymentDto.getAddress();
+        stripeClient.v1().customers().update(customerId, CustomerUpdateParams.builder()
                 // Billing address, also Used for taxes
                 .setAddress(
                         CustomerUpdateParams.Address.builder()
-                                .setLine1(stripePaymentDto.getAddress().getStreet())
-                                .setCity(stripePaymentDto.getAddress().getCity())
-                                .setState(stripePaymentDto.getAddress().getState())
-                                .setPostalCode(stripePaymentDto.getAddress().getPincode())
-                                .setCountry(stripePaymentDto.getAddress().getCountry())
+                                .setLine1(address.getStreet())
+                                .setCity(address.getCity())
+                                .setState(address.getState())
+                                .setPostalCode(address.getPincode())
+                                .setCountry(address.getCountry())
                                 .build())
                 //  Shipping Address, used for the invoice
                 .setShipping(
                         CustomerUpdateParams.Shipping.builder()
                                 .setAddress(
                                         CustomerUpdateParams.Shipping.Address.builder()
-                                                .setLine1(stripePaymentDto.getAddress().getStreet())
-                                                .setCity(stripePaymentDto.getAddress().getCity())
-                                                .setState(stripePaymentDto.getAddress().getState())
-                                                .setPostalCode(stripePaymentDto.getAddress().getPincode())
-                                                .setCountry(stripePaymentDto.getAddress().getCountry())
+                                                .setLine1(address.getStreet())
+                                                .setCity(address.getCity())
+                                                .setState(address.getState())
+                                                .setPostalCode(address.getPincode())
+                                                .setCountry(address.getCountry())
                                                 .build()
                                 )
                                 .setName(stripePaymentDto.getName())
                                 .build())
                 .build());
-        return customer;
+    }
+
+    // Everything updateCustomerInfo sends to Stripe
+    private static String addressHash(StripePaymentDto stripePaymentDto) {
+        AddressDTO address = stripePaymentDto.getAddress();
+        return sha256(String.join("\n", String.valueOf(stripePaymentDto.getName()), String.valueOf(address.getStreet()),
+                String.valueOf(address.getCity()), String.valueOf(address.getState()),
+                String.valueOf(address.getPincode()), String.valueOf(address.getCountry())));
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
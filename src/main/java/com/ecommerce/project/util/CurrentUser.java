@@ -0,0 +1,53 @@
+package com.ecommerce.project.util;
+
+import com.ecommerce.project.model.User;
+import com.ecommerce.project.repositories.UserRepository;
+import com.ecommerce.project.security.services.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+// The logged-in user of the current request. Id, username and email come from the authenticated principal,
+// the User entity is loaded at most once per request.
+@Component
+@RequestScope
+public class CurrentUser {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    public UserDetailsImpl getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetailsImpl principal)) {
+            throw new UsernameNotFoundException("User Not Found with username: "
+                    + (authentication != null ? authentication.getName() : null));
+        }
+        return principal;
+    }
+
+    public Long getId() {
+        return getPrincipal().getId();
+    }
+
+    public String getUsername() {
+        return getPrincipal().getUsername();
+    }
+
+    public String getEmail() {
+        return getPrincipal().getEmail();
+    }
+
+    public User getUser() {
+        if (user == null) {
+            UserDetailsImpl principal = getPrincipal();
+            user = userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + principal.getUsername()));
+        }
+        return user;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecommerce.project.util;
+
+import com.ecommerce.project.exceptions.ApiException;
+import com.ecommerce.project.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+// Opaque keyset cursor: the sort key of the last product on a page plus its productId as tie breaker.
+// Encoded as base64url("sortBy|productId|sortValue") so clients cannot depend on its layout.
+@Getter
+@AllArgsConstructor
+public class ProductCursor {
+    public static final Set<String> SORT_FIELDS = Set.of("productId", "productName", "price", "specialPrice", "discount");
+
+    private final String sortBy;
+    private final Long productId;
+    private final Comparable<?> sortValue;
+
+    public static ProductCursor of(Product product, String sortBy) {
+        return new ProductCursor(sortBy, product.getProductId(), sortValue(product, sortBy));
+    }
+
+    public static ProductCursor decode(String cursor, String sortBy) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(sortBy)) {
+                throw new ApiException("Cursor does not match sortBy " + sortBy);
+            }
+            Long productId = Long.valueOf(parts[1]);
+            return new ProductCursor(sortBy, productId, parseSortValue(sortBy, parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static void checkSortField(String sortBy) {
+        if (!SORT_FIELDS.contains(sortBy)) {
+            throw new ApiException("Cursor paging is not supported for sortBy " + sortBy + ", use one of " + SORT_FIELDS);
+        }
+    }
+
+    public String encode() {
+        String raw = sortBy + "|" + productId + "|" + sortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Comparable<?> sortValue(Product product, String sortBy) {
+        return switch (sortBy) {
+            case "productId" -> product.getProductId();
+            case "productName" -> product.getProductName();
+            case "price" -> product.getPrice();
+            case "specialPrice" -> product.getSpecialPrice();
+            case "discount" -> product.getDiscount();
+            default -> throw new ApiException("Cursor paging is not supported for sortBy " + sortBy);
+        };
+    }
+
+    private static Comparable<?> parseSortValue(String sortBy, String value) {
+        return switch (sortBy) {
+            case "productId" -> Long.valueOf(value);
+            case "productName" -> value;
+            case "price", "specialPrice", "discount" -> Double.valueOf(value);
+            // Search score, only used by the search index
+            case "relevance" -> Float.valueOf(value);
+            default -> throw new ApiException("Cursor paging is not supported for sortBy " + sortBy);
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.project.benchmark;
+
+import com.ecommerce.project.security.jwt.JwtUtils;
+import com.ecommerce.project.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per request cost of authenticating a JWT: before, the key was decoded and a parser built for validateJwtToken and
+// again for reading the claims, so the token was verified twice. Now one parser built at startup verifies it once.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilsBenchmark {
+    private static final String SECRET = "bXlTZWNyZXRLZXlNdXN0QmVBdGxlYXN0MzJCeXRlc0xvbmc=";
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationTime", 3_000_000);
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "k1");
+        ReflectionTestUtils.setField(jwtUtils, "jwtPreviousSecrets", "");
+        jwtUtils.init();
+        token = jwtUtils.generateTokenFromUsername(new UserDetailsImpl(7L, "buyer", "buyer@example.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    // What AuthTokenFilter did before: validateJwtToken, then getUserDetailsFromJWTToken, each with a new parser
+    @Benchmark
+    public Claims keyAndParserPerCall() {
+        Jwts.parser().verifyWith(key()).build().parseSignedClaims(token);
+        return Jwts.parser().verifyWith(key()).build().parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public Claims parseClaimsOnce() {
+        return jwtUtils.parseClaims(token);
+    }
+
+    private static SecretKey key() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+}
@@ -0,0 +1,106 @@
+package com.ecommerce.project.benchmark;
+
+import com.ecommerce.project.mapper.OrderMapper;
+import com.ecommerce.project.mapper.OrderMapperImpl;
+import com.ecommerce.project.mapper.ProductMapper;
+import com.ecommerce.project.mapper.ProductMapperImpl;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Order;
+import com.ecommerce.project.model.OrderItem;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.OrderItemDTO;
+import com.ecommerce.project.payload.ProductDto;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per row mapping cost of a product page and of the items of an order: ModelMapper as AppConfig used to configure it
+// against the generated mappers. MapperEquivalenceTest checks both produce the same DTOs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+    private static final int ROWS = 50;
+
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final ProductMapper productMapper = new ProductMapperImpl();
+    private final OrderMapper orderMapper = new OrderMapperImpl();
+
+    private final List<Product> products = new ArrayList<>();
+    private final List<OrderItem> orderItems = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(orderMapper, "productMapper", productMapper);
+        Category category = new Category(3L, "Phones", null);
+        Order order = new Order();
+        order.setOrderId(5L);
+        for (long id = 1; id <= ROWS; id++) {
+            Product product = new Product();
+            product.setProductId(id);
+            product.setProductName("Phone " + id);
+            product.setImage("phone-" + id + ".png");
+            product.setDescription("Description of phone " + id);
+            product.setQuantity(50);
+            product.setPrice(100.0);
+            product.setDiscount(10.0);
+            product.setSpecialPrice(90.0);
+            product.setCategory(category);
+            products.add(product);
+            orderItems.add(new OrderItem(id, product, order, 2, 10.0, 90.0));
+        }
+        // The first ModelMapper mappings build its type maps, they are not part of the per row cost
+        modelMapper.map(products.get(0), ProductDto.class);
+        modelMapper.map(orderItems.get(0), OrderItemDTO.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void productRowModelMapper(Blackhole blackhole) {
+        for (Product product : products) {
+            blackhole.consume(modelMapper.map(product, ProductDto.class));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void productRowMapStruct(Blackhole blackhole) {
+        for (Product product : products) {
+            blackhole.consume(productMapper.toDto(product));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void orderItemRowModelMapper(Blackhole blackhole) {
+        for (OrderItem orderItem : orderItems) {
+            blackhole.consume(modelMapper.map(orderItem, OrderItemDTO.class));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void orderItemRowMapStruct(Blackhole blackhole) {
+        for (OrderItem orderItem : orderItems) {
+            blackhole.consume(orderMapper.toDto(orderItem));
+        }
+    }
+}
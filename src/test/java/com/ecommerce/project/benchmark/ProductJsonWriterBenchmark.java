@@ -0,0 +1,89 @@
+package com.ecommerce.project.benchmark;
+
+import com.ecommerce.project.mapper.ProductMapper;
+import com.ecommerce.project.mapper.ProductMapperImpl;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductDto;
+import com.ecommerce.project.payload.ProductResponse;
+import com.ecommerce.project.service.ProductJsonWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost of writing a product page missing from ProductPageCache once its products are loaded: mapping every row and
+// serializing the ProductResponse with plain Jackson, against ProductJsonWriter splicing the fragments it keeps of
+// unchanged products. ProductJsonWriterTest checks both produce the same bytes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductJsonWriterBenchmark {
+    private static final int ROWS = 50;
+    private static final String IMAGE_BASE_URL = "http://localhost:8080/images/";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final ProductMapper productMapper = new ProductMapperImpl();
+    private final ProductJsonWriter productJsonWriter =
+            new ProductJsonWriter(new SimpleMeterRegistry(), objectMapper, 1000);
+
+    private Page<Product> page;
+
+    @Setup
+    public void setUp() {
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= ROWS; id++) {
+            Product product = new Product();
+            product.setProductId(id);
+            product.setProductName("Phone " + id);
+            product.setImage("phone-" + id + ".png");
+            product.setDescription("Description of phone " + id);
+            product.setQuantity(50);
+            product.setPrice(100.0);
+            product.setDiscount(10.0);
+            product.setSpecialPrice(90.0);
+            products.add(product);
+        }
+        page = new PageImpl<>(products, PageRequest.of(0, ROWS), 1000);
+        // Every product has its fragment, as on a page whose products did not change since they were last written
+        productJsonWriter.write(page, this::toDto);
+    }
+
+    @Benchmark
+    public byte[] plainJackson() throws JsonProcessingException {
+        ProductResponse productResponse = new ProductResponse(page.stream().map(this::toDto).toList(),
+                page.getNumber(), page.getSize(), page.getTotalElements(), page.getTotalPages(), page.isLast(), null);
+        return objectMapper.writeValueAsBytes(productResponse);
+    }
+
+    @Benchmark
+    public byte[] fragments() {
+        return productJsonWriter.write(page, this::toDto);
+    }
+
+    // Same as ProductServiceImpl
+    private ProductDto toDto(Product product) {
+        ProductDto productDto = productMapper.toDto(product);
+        productDto.setImage(IMAGE_BASE_URL + productDto.getImage());
+        return productDto;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ecommerce.project.config;
+
+import com.ecommerce.project.controller.ProductController;
+import com.ecommerce.project.exceptions.ApiException;
+import com.ecommerce.project.exceptions.MyGlobalExceptionHandler;
+import com.ecommerce.project.repositories.CatalogVersionRecordRepository;
+import com.ecommerce.project.service.CatalogChangedEvent;
+import com.ecommerce.project.service.CatalogVersion;
+import com.ecommerce.project.service.ProductImportService;
+import com.ecommerce.project.service.ProductPageCache;
+import com.ecommerce.project.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringJUnitConfig({CatalogVersion.class, CatalogCacheInterceptor.class, CatalogCacheHeadersAdvice.class,
+        ProductController.class, ProductPageCache.class, SimpleMeterRegistry.class, CatalogCacheInterceptorTest.Config.class})
+@TestPropertySource(properties = {
+        "spring.app.catalogMaxAgeSeconds=60",
+        "spring.app.catalogVersionRefreshMillis=1000",
+        "spring.app.productPageCacheMaxBytes=1000000",
+        "spring.app.productPageCacheTtlSeconds=600"
+})
+class CatalogCacheInterceptorTest {
+
+    @TestConfiguration
+    static class Config {
+        // Stands in for the catalog_version row, stubbed before CatalogVersion reads it on startup
+        @Bean
+        CatalogVersionRecordRepository catalogVersionRecordRepository() {
+            AtomicLong version = new AtomicLong(1);
+            CatalogVersionRecordRepository repository = mock(CatalogVersionRecordRepository.class);
+            when(repository.findVersion()).thenAnswer(invocation -> Optional.of(version.get()));
+            when(repository.increment()).thenAnswer(invocation -> {
+                version.incrementAndGet();
+                return 1;
+            });
+            return repository;
+        }
+    }
+
+    @MockitoBean
+    private ProductService productService;
+    @MockitoBean
+    private ProductImportService productImportService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+    @Autowired
+    private CatalogCacheInterceptor catalogCacheInterceptor;
+    @Autowired
+    private CatalogCacheHeadersAdvice catalogCacheHeadersAdvice;
+    @Autowired
+    private ProductController productController;
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(productController)
+                .addInterceptors(catalogCacheInterceptor)
+                .setControllerAdvice(new MyGlobalExceptionHandler(), catalogCacheHeadersAdvice)
+                .build();
+        // The page cache outlives a test, pages cached by an earlier test would hide the stubbing
+        productPageCache.onCatalogChanged(new CatalogChangedEvent(null));
+        when(productService.getAllProductsJson(any(), any(), anyInt(), anyInt(), anyString(), anyString()))
+                .thenReturn("{\"content\":[]}".getBytes());
+    }
+
+    @Test
+    void catalogResponseCarriesItsETagAndCachingHeaders() throws Exception {
+        mockMvc.perform(get("/api/public/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + catalogVersion.current() + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    void currentETagIsAnsweredWithNotModifiedWithoutRunningTheQuery() throws Exception {
+        String etag = mockMvc.perform(get("/api/public/products"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/public/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"));
+
+        verify(productService, times(1)).getAllProductsJson(any(), any(), anyInt(), anyInt(), anyString(), anyString());
+    }
+
+    @Test
+    void catalogChangeInvalidatesTheETag() throws Exception {
+        String etag = mockMvc.perform(get("/api/public/products"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        catalogVersion.onCatalogChanged(new CatalogChangedEvent(1L));
+
+        String newEtag = mockMvc.perform(get("/api/public/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    void errorResponsesAreNotMarkedCacheable() throws Exception {
+        when(productService.getAllProductsJson(any(), any(), anyInt(), anyInt(), anyString(), anyString()))
+                .thenThrow(new ApiException("No products found"));
+
+        mockMvc.perform(get("/api/public/products"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL));
+    }
+}
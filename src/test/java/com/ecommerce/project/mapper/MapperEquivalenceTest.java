@@ -0,0 +1,165 @@
+package com.ecommerce.project.mapper;
+
+import com.ecommerce.project.model.Address;
+import com.ecommerce.project.model.AppRole;
+import com.ecommerce.project.model.Cart;
+import com.ecommerce.project.model.CartItem;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Order;
+import com.ecommerce.project.model.OrderItem;
+import com.ecommerce.project.model.Payment;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.model.Role;
+import com.ecommerce.project.model.User;
+import com.ecommerce.project.payload.AddressDTO;
+import com.ecommerce.project.payload.CartDto;
+import com.ecommerce.project.payload.CategoryDTO;
+import com.ecommerce.project.payload.OrderDTO;
+import com.ecommerce.project.payload.OrderItemDTO;
+import com.ecommerce.project.payload.ProductDto;
+import com.ecommerce.project.payload.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The generated mappers replaced ModelMapper, they have to produce the same DTOs
+@SpringJUnitConfig(MapperEquivalenceTest.Config.class)
+class MapperEquivalenceTest {
+
+    @Configuration
+    @ComponentScan(basePackageClasses = ProductMapper.class)
+    static class Config {
+    }
+
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    @Autowired
+    private ProductMapper productMapper;
+    @Autowired
+    private CartMapper cartMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private AddressMapper addressMapper;
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    @Test
+    void productMapping() {
+        Product product = product(1L, "Phone", 3);
+        assertEquals(modelMapper.map(product, ProductDto.class), productMapper.toDto(product));
+
+        ProductDto productDto = new ProductDto(7L, "Laptop", "laptop.png", "A light laptop", 4, 999.0, 10.0, 899.1);
+        assertEquals(modelMapper.map(productDto, Product.class), productMapper.toEntity(productDto));
+    }
+
+    @Test
+    void cartMapping() {
+        Cart cart = cart();
+
+        // Previous CartServiceImpl.convertToCartDto
+        CartDto expected = modelMapper.map(cart, CartDto.class);
+        expected.setProducts(cart.getCartItems().stream().map(item -> {
+            ProductDto prod = modelMapper.map(item.getProduct(), ProductDto.class);
+            prod.setQuantity(item.getQuantity());
+            return prod;
+        }).toList());
+
+        assertEquals(expected, cartMapper.toDto(cart));
+    }
+
+    @Test
+    void orderMapping() {
+        Order order = new Order();
+        order.setOrderId(5L);
+        order.setEmail("user@example.com");
+        order.setOrderDate(LocalDate.of(2024, 5, 1));
+        order.setTotalAmount(150.0);
+        order.setOrderStatus("Order Accepted !");
+        order.setAddress(address());
+        Payment payment = new Payment("card", "pi_1", "succeeded", "ok", "Stripe");
+        payment.setPaymentId(9L);
+        order.setPayment(payment);
+
+        OrderItem orderItem = new OrderItem(11L, product(1L, "Phone", 3), order, 2, 10.0, 90.0);
+
+        // Previous OrderServiceImpl.placeOrder
+        OrderDTO expected = modelMapper.map(order, OrderDTO.class);
+        expected.getOrderItems().add(modelMapper.map(orderItem, OrderItemDTO.class));
+        OrderDTO actual = orderMapper.toDto(order);
+        actual.getOrderItems().add(orderMapper.toDto(orderItem));
+
+        assertEquals(expected, actual);
+        assertEquals(21L, actual.getAddressId());
+    }
+
+    @Test
+    void addressMapping() {
+        Address address = address();
+        assertEquals(modelMapper.map(address, AddressDTO.class), addressMapper.toDto(address));
+
+        AddressDTO addressDTO = new AddressDTO(22L, "Main Street", "Tower A", "Berlin", "Berlin", "Germany", "10115");
+        assertEquals(modelMapper.map(addressDTO, Address.class), addressMapper.toEntity(addressDTO));
+    }
+
+    @Test
+    void categoryMapping() {
+        Category category = new Category(3L, "Phones", null);
+        assertEquals(modelMapper.map(category, CategoryDTO.class), categoryMapper.toDto(category));
+
+        CategoryDTO categoryDTO = new CategoryDTO(4L, "Laptops");
+        assertEquals(modelMapper.map(categoryDTO, Category.class), categoryMapper.toEntity(categoryDTO));
+    }
+
+    @Test
+    void userMapping() {
+        User user = new User("seller", "seller@example.com", "hash");
+        user.setUserId(31L);
+        user.setRoles(Set.of(new Role(AppRole.ROLE_SELLER)));
+        Cart cart = new Cart();
+        cart.setCartId(41L);
+        user.setCart(cart);
+
+        assertEquals(modelMapper.map(user, UserDTO.class), userMapper.toDto(user));
+    }
+
+    private static Product product(Long productId, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setProductName(name);
+        product.setImage(name.toLowerCase() + ".png");
+        product.setDescription("Description of " + name);
+        product.setQuantity(quantity);
+        product.setPrice(100.0);
+        product.setDiscount(10.0);
+        product.setSpecialPrice(90.0);
+        product.setCategory(new Category(3L, "Phones", null));
+        return product;
+    }
+
+    private static Cart cart() {
+        Cart cart = new Cart();
+        cart.setCartId(2L);
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem(1L, cart, product(1L, "Phone", 50), 2, 10.0, 90.0, 0));
+        items.add(new CartItem(2L, cart, product(2L, "Charger", 80), 1, 10.0, 90.0, 0));
+        cart.setCartItems(items);
+        return cart;
+    }
+
+    private static Address address() {
+        return new Address(21L, "Main Street", "Tower A", "Berlin", "Berlin", "Germany", "10115", null);
+    }
+}
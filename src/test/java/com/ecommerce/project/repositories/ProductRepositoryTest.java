@@ -0,0 +1,81 @@
+package com.ecommerce.project.repositories;
+
+import com.ecommerce.project.model.Cart;
+import com.ecommerce.project.model.CartItem;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setCategoryName("Phones");
+        entityManager.persist(category);
+        Cart cart = new Cart();
+        entityManager.persist(cart);
+        for (int i = 0; i < 5; i++) {
+            Product product = new Product();
+            product.setProductName("Phone " + i);
+            product.setDescription("A phone for testing " + i);
+            product.setQuantity(10);
+            product.setPrice(100);
+            product.setSpecialPrice(100);
+            product.setCategory(category);
+            entityManager.persist(product);
+            entityManager.persist(new CartItem(null, cart, product, 1, 0, 100, 0));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    // A catalog page is the page query plus the count query, whatever the number of cart items
+    @Test
+    void catalogPageDoesNotLoadAssociations() {
+        Page<Product> page = productRepository.findAll(Specification.where(null),
+                PageRequest.of(0, 3, Sort.by("productId")));
+
+        assertEquals(3, page.getNumberOfElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+    }
+
+    @Test
+    void rebuildPageLoadsCategoryWithEntityGraph() {
+        Page<Product> page = productRepository.findAllWithCategoryBy(PageRequest.of(0, 3, Sort.by("productId")));
+
+        page.forEach(product -> assertEquals("Phones", product.getCategory().getCategoryName()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.project.security.jwt;
+
+import com.ecommerce.project.security.services.UserDetailsImpl;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilsTest {
+    private static final String SECRET = "bXlTZWNyZXRLZXlNdXN0QmVBdGxlYXN0MzJCeXRlc0xvbmc=";
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = jwtUtils("");
+    }
+
+    @Test
+    void tokenWithAllUserClaimsIsAccepted() {
+        String token = jwtUtils.generateTokenFromUsername(new UserDetailsImpl(7L, "buyer", "buyer@example.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        UserDetailsImpl user = jwtUtils.getUserDetailsFromClaims(jwtUtils.parseClaims(token));
+
+        assertEquals(7L, user.getId());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), List.copyOf(user.getAuthorities()));
+    }
+
+    @Test
+    void validlySignedTokenWithoutRolesIsRejected() {
+        String token = signed(Jwts.builder().subject("buyer").claim(JwtUtils.CLAIM_USER_ID, 7L)
+                .claim(JwtUtils.CLAIM_TOKEN_VERSION, 0L));
+
+        assertNull(jwtUtils.parseClaims(token));
+    }
+
+    @Test
+    void validlySignedTokenWithoutTokenVersionIsRejected() {
+        String token = signed(Jwts.builder().subject("buyer").claim(JwtUtils.CLAIM_USER_ID, 7L)
+                .claim(JwtUtils.CLAIM_ROLES, List.of("ROLE_USER")));
+
+        assertNull(jwtUtils.parseClaims(token));
+    }
+
+    @Test
+    void tokenWithoutUserClaimsIsStillAccepted() {
+        String token = signed(Jwts.builder().subject("buyer"));
+
+        assertNotNull(jwtUtils.parseClaims(token));
+    }
+
+    @Test
+    void previousSecretWithoutKeyIdNamesThePropertyAndTheEntry() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> jwtUtils("k0:" + SECRET + "," + SECRET));
+
+        assertTrue(e.getMessage().contains("spring.app.jwtPreviousSecrets entry 1"));
+    }
+
+    @Test
+    void tokenSignedWithAPreviousSecretIsAccepted() {
+        String token = signed(Jwts.builder().subject("buyer"));
+        // After the rotation k1 is a previous secret
+        JwtUtils rotated = new JwtUtils();
+        ReflectionTestUtils.setField(rotated, "jwtSecret", "YW5vdGhlclNlY3JldEtleU11c3RCZUF0bGVhc3QzMkJ5dGVz");
+        ReflectionTestUtils.setField(rotated, "jwtExpirationTime", 3_000_000);
+        ReflectionTestUtils.setField(rotated, "jwtKeyId", "k2");
+        ReflectionTestUtils.setField(rotated, "jwtPreviousSecrets", " k1:" + SECRET + " , ");
+        rotated.init();
+
+        assertNotNull(rotated.parseClaims(token));
+    }
+
+    private static JwtUtils jwtUtils(String previousSecrets) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationTime", 3_000_000);
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "k1");
+        ReflectionTestUtils.setField(jwtUtils, "jwtPreviousSecrets", previousSecrets);
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    private static String signed(JwtBuilder builder) {
+        return builder.expiration(new Date(System.currentTimeMillis() + 60_000))
+                .header().keyId("k1").and()
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+    }
+}
@@ -0,0 +1,213 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.mapper.CartMapper;
+import com.ecommerce.project.model.Cart;
+import com.ecommerce.project.model.CartItem;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.model.User;
+import com.ecommerce.project.payload.CartItemDto;
+import com.ecommerce.project.repositories.CartItemRepository;
+import com.ecommerce.project.repositories.CartRepository;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import com.ecommerce.project.repositories.UserRepository;
+import com.ecommerce.project.util.AuthUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+// Parallel quantity updates on one cart must neither lose updates nor leave cart and items out of step
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.app.cartRetryMaxAttempts=20",
+        "spring.app.cartRetryBackoffMillis=5"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartServiceConcurrencyTest {
+    private static final String EMAIL = "buyer@example.com";
+
+    @TestConfiguration
+    @ComponentScan(basePackageClasses = CartMapper.class)
+    @Import(CartServiceImpl.class)
+    static class Config {
+    }
+
+    @MockitoBean
+    private AuthUtil authUtil;
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long cartId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        when(authUtil.loggedInEmail()).thenReturn(EMAIL);
+
+        User user = userRepository.save(new User("buyer", EMAIL, "hash"));
+        // Persisted through the product's cascade
+        Category category = new Category();
+        category.setCategoryName("Phones");
+
+        Product product = new Product();
+        product.setProductName("Phone");
+        product.setDescription("A phone for testing");
+        product.setQuantity(1000);
+        product.setPrice(100);
+        product.setSpecialPrice(90);
+        product.setCategory(category);
+        productId = productRepository.save(product).getProductId();
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+        cartId = cart.getCartId();
+        cartItemRepository.save(new CartItem(null, cart, product, 1, 0, 90, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void parallelQuantityUpdatesAreNotLost() throws Exception {
+        int threads = 8;
+        int updatesPerThread = 5;
+        int updates = threads * updatesPerThread;
+        long initialCartVersion = cartRepository.findById(cartId).orElseThrow().getVersion();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Conflicts are retried inside the service, every update has to succeed
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < updatesPerThread; j++) {
+                    cartService.updateProductQuantityInCart(productId, 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
+        assertEquals(1 + updates, cartItem.getQuantity());
+        assertEquals(1, cartItemRepository.count());
+        // Every update bumped the cart version exactly once
+        assertEquals(initialCartVersion + updates, cartRepository.findById(cartId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void parallelCartReplacementsAreRetriedNotRejected() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int quantity = i + 1;
+            futures.add(executor.submit(() -> {
+                start.await();
+                cartService.createOrUpdateCartWithItems(List.of(new CartItemDto(productId, quantity)));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // One of the replacements won, the others did not leave items behind
+        assertEquals(1, cartItemRepository.count());
+    }
+
+    @Test
+    void repriceDuringQuantityUpdatesIsNotLost() throws Exception {
+        int threads = 4;
+        int updatesPerThread = 10;
+        int reprices = 20;
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < updatesPerThread; j++) {
+                    cartService.updateProductQuantityInCart(productId, 1);
+                }
+                return null;
+            }));
+        }
+        // As ProductServiceImpl.updateProduct does it: the product and its cart items in one transaction
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (int i = 1; i <= reprices; i++) {
+                double price = 90 + i;
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    Product product = productRepository.findById(productId).orElseThrow();
+                    product.setSpecialPrice(price);
+                    productRepository.save(product);
+                    cartService.repriceProductInCarts(productId, price, 0);
+                });
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
+        assertEquals(90 + reprices, cartItem.getProductPrice());
+        assertEquals(1 + threads * updatesPerThread, cartItem.getQuantity());
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.repositories.CatalogVersionRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Two instances of the application sharing one database
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogVersionTest {
+    private static final long REFRESH_MILLIS = 200;
+
+    @Autowired
+    private CatalogVersionRecordRepository catalogVersionRecordRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Object> eventsOfA = new ArrayList<>();
+    private final List<Object> eventsOfB = new ArrayList<>();
+
+    @Test
+    void changeOnOneInstanceReachesTheOtherAfterTheRefresh() throws InterruptedException {
+        CatalogVersion a = instance(eventsOfA);
+        CatalogVersion b = instance(eventsOfB);
+        long version = b.current();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                a.onCatalogChanged(new CatalogChangedEvent(1L)));
+
+        assertEquals(version + 1, a.current());
+        Thread.sleep(REFRESH_MILLIS * 2);
+        assertEquals(version + 1, b.current());
+        // Only the instance that did not write the change drops its caches
+        assertEquals(List.of(), eventsOfA);
+        assertEquals(List.of(new CatalogChangedElsewhereEvent(version + 1)), eventsOfB);
+    }
+
+    @Test
+    void rolledBackChangeKeepsTheVersion() throws InterruptedException {
+        CatalogVersion a = instance(eventsOfA);
+        CatalogVersion b = instance(eventsOfB);
+        long version = a.current();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            a.onCatalogChanged(new CatalogChangedEvent(1L));
+            status.setRollbackOnly();
+        });
+        assertEquals(version, a.current());
+
+        // The other instance commits the version number a rolled back, a must not take it for its own
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                b.onCatalogChanged(new CatalogChangedEvent(1L)));
+        Thread.sleep(REFRESH_MILLIS * 2);
+        assertEquals(version + 1, a.current());
+        assertEquals(List.of(new CatalogChangedElsewhereEvent(version + 1)), eventsOfA);
+    }
+
+    private CatalogVersion instance(List<Object> events) {
+        CatalogVersion instance = new CatalogVersion();
+        ApplicationEventPublisher eventPublisher = events::add;
+        ReflectionTestUtils.setField(instance, "catalogVersionRecordRepository", catalogVersionRecordRepository);
+        ReflectionTestUtils.setField(instance, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(instance, "refreshMillis", REFRESH_MILLIS);
+        instance.init();
+        return instance;
+    }
+}
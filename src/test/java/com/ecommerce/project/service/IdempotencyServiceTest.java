@@ -0,0 +1,186 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.ApiException;
+import com.ecommerce.project.exceptions.ConflictException;
+import com.ecommerce.project.payload.OrderDTO;
+import com.ecommerce.project.repositories.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import(IdempotencyServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+    private static final String OWNER = "buyer@example.com";
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ObjectMapper objectMapper() {
+            return JsonMapper.builder().findAndAddModules().build();
+        }
+    }
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    void retryReplaysTheStoredResult() {
+        OrderDTO first = idempotencyService.execute("key-1", OWNER, "request", OrderDTO.class, placeOrder(0));
+        OrderDTO retry = idempotencyService.execute("key-1", OWNER, "request", OrderDTO.class, placeOrder(0));
+
+        assertEquals(1, executions.get());
+        assertEquals(first, retry);
+    }
+
+    @Test
+    void keyCannotBeReusedForAnotherRequest() {
+        idempotencyService.execute("key-2", OWNER, "request", OrderDTO.class, placeOrder(0));
+
+        assertThrows(ApiException.class,
+                () -> idempotencyService.execute("key-2", OWNER, "other request", OrderDTO.class, placeOrder(0)));
+        assertThrows(ApiException.class,
+                () -> idempotencyService.execute("key-2", "other@example.com", "request", OrderDTO.class, placeOrder(0)));
+    }
+
+    @Test
+    void failedRequestFreesTheKey() {
+        assertThrows(ApiException.class, () -> idempotencyService.execute("key-3", OWNER, "request", OrderDTO.class,
+                () -> {
+                    throw new ApiException("Cart is empty");
+                }));
+
+        idempotencyService.execute("key-3", OWNER, "request", OrderDTO.class, placeOrder(0));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void concurrentDuplicatesRunOnce() throws Exception {
+        int duplicates = 10;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(duplicates);
+        List<Future<OrderDTO>> futures = new ArrayList<>();
+        for (int i = 0; i < duplicates; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return idempotencyService.execute("key-4", OWNER, "request", OrderDTO.class, placeOrder(200));
+            }));
+        }
+        start.countDown();
+        OrderDTO expected = futures.get(0).get(30, TimeUnit.SECONDS);
+        for (Future<OrderDTO> future : futures) {
+            assertEquals(expected, future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void requestOutlivingItsLeaseIsRolledBackWhenAnotherInstanceTookOver() throws Exception {
+        IdempotencyService slowInstance = instance(1);
+        IdempotencyService otherInstance = instance(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch takenOver = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<OrderDTO> slow = executor.submit(() -> slowInstance.execute("key-5", OWNER, "request", OrderDTO.class,
+                () -> {
+                    started.countDown();
+                    try {
+                        takenOver.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return placeOrder(0).get();
+                }));
+        assertTrue(started.await(30, TimeUnit.SECONDS));
+        // The lease expires and a retry reaches the other instance
+        Thread.sleep(1500);
+        OrderDTO takeover = otherInstance.execute("key-5", OWNER, "request", OrderDTO.class, placeOrder(0));
+        takenOver.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> slow.get(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertInstanceOf(ConflictException.class, e.getCause());
+        // The claim of the other instance survived the failed request, so its order is replayed
+        assertEquals(takeover, otherInstance.execute("key-5", OWNER, "request", OrderDTO.class, placeOrder(0)));
+        assertEquals(2, executions.get());
+    }
+
+    // Another instance of the service with its own in-flight requests, sharing the database
+    private IdempotencyService instance(long leaseSeconds) {
+        IdempotencyServiceImpl instance = new IdempotencyServiceImpl();
+        ReflectionTestUtils.setField(instance, "idempotencyRecordRepository", idempotencyRecordRepository);
+        ReflectionTestUtils.setField(instance, "entityManager", entityManager);
+        ReflectionTestUtils.setField(instance, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(instance, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(instance, "ttlHours", 24L);
+        ReflectionTestUtils.setField(instance, "leaseSeconds", leaseSeconds);
+        return instance;
+    }
+
+    // Stands in for placeOrder, slow enough for duplicates to arrive while it runs
+    private Supplier<OrderDTO> placeOrder(long millis) {
+        return () -> {
+            int execution = executions.incrementAndGet();
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            OrderDTO order = new OrderDTO();
+            order.setOrderId((long) execution);
+            order.setEmail(OWNER);
+            order.setOrderItems(List.of());
+            order.setTotalAmount(180.0);
+            return order;
+        };
+    }
+}
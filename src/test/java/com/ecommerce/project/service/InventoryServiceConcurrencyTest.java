@@ -0,0 +1,126 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.ApiException;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Reservations commit for real, so the test runs outside the rolled back test transaction
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({InventoryServiceImpl.class, StockChangePublisher.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+class InventoryServiceConcurrencyTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockChangePublisher stockChangePublisher;
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void oversubscribedProductSellsExactlyItsStock() throws Exception {
+        int stock = 10;
+        int buyers = 40;
+        Long productId = product("Flash sale phone", stock);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    inventoryService.reserve(Map.of(productId, 1));
+                    reserved.incrementAndGet();
+                } catch (ApiException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(stock, reserved.get());
+        assertEquals(buyers - stock, rejected.get());
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void insufficientStockRollsBackTheWholeReservation() {
+        Long inStock = product("Phone in stock", 5);
+        Long soldOut = product("Phone sold out", 0);
+
+        assertThrows(ApiException.class, () -> inventoryService.reserve(Map.of(inStock, 2, soldOut, 1)));
+
+        assertEquals(5, productRepository.findById(inStock).orElseThrow().getQuantity());
+        assertEquals(0, productRepository.findById(soldOut).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void stockChangesArePublishedOncePerCategoryNotPerOrder() {
+        Long productId = product("Phone", 10);
+        Long categoryId = productRepository.findById(productId).orElseThrow().getCategory().getCategoryId();
+
+        inventoryService.reserve(Map.of(productId, 1));
+        inventoryService.reserve(Map.of(productId, 2));
+        assertEquals(0, events.stream(CatalogChangedEvent.class).count());
+
+        stockChangePublisher.publish();
+        stockChangePublisher.publish();
+        assertEquals(List.of(new CatalogChangedEvent(categoryId)), events.stream(CatalogChangedEvent.class).toList());
+    }
+
+    private Long product(String name, int quantity) {
+        // The category is persisted through the product's cascade
+        Category category = new Category();
+        category.setCategoryName("Category of " + name);
+        Product product = new Product();
+        product.setProductName(name);
+        product.setDescription("A product for testing");
+        product.setQuantity(quantity);
+        product.setPrice(100);
+        product.setSpecialPrice(100);
+        product.setCategory(category);
+        return productRepository.save(product).getProductId();
+    }
+}
@@ -0,0 +1,86 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.repositories.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Products are changed through the repository only, as another node would change them, so the index only learns
+// about them through reconcile
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "search.index.path=target/search-index-test/${random.uuid}"
+})
+@Import({LuceneProductSearchIndex.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LuceneProductSearchIndexTest {
+
+    @Autowired
+    private LuceneProductSearchIndex productSearchIndex;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void reconcileCatchesUpWithChangesMadeElsewhere() {
+        Long kept = product("Blue phone");
+        Long renamed = product("Red phone");
+        Long deleted = product("Green phone");
+        productSearchIndex.reconcile();
+        assertEquals(List.of(kept, deleted, renamed), search("phone"));
+
+        Product product = productRepository.findById(renamed).orElseThrow();
+        product.setProductName("Red tablet");
+        productRepository.save(product);
+        productRepository.deleteById(deleted);
+        Long added = product("Yellow phone");
+        productSearchIndex.reconcile();
+
+        assertEquals(List.of(kept, added), search("phone"));
+        assertEquals(List.of(renamed), search("tablet"));
+    }
+
+    @Test
+    void reconcileWithNothingChangedKeepsTheIndex() {
+        Long productId = product("Blue phone");
+        productSearchIndex.reconcile();
+        productSearchIndex.reconcile();
+
+        assertEquals(List.of(productId), search("phone"));
+    }
+
+    // Sorted by name so the expectations do not depend on the ranking
+    private List<Long> search(String keyword) {
+        return productSearchIndex.search(keyword, null, 0, 10, "productName", "asc").getProductIds();
+    }
+
+    private Long product(String name) {
+        // The category is persisted through the product's cascade
+        Category category = new Category();
+        category.setCategoryName("Category of " + name);
+        Product product = new Product();
+        product.setProductName(name);
+        product.setDescription("A product for testing");
+        product.setQuantity(10);
+        product.setPrice(100);
+        product.setSpecialPrice(100);
+        product.setCategory(category);
+        return productRepository.save(product).getProductId();
+    }
+}
@@ -0,0 +1,128 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.mapper.OrderMapper;
+import com.ecommerce.project.model.Address;
+import com.ecommerce.project.model.Cart;
+import com.ecommerce.project.model.CartItem;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.model.User;
+import com.ecommerce.project.payload.OrderDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Placing an order costs a fixed number of statements, whatever the number of cart items
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({OrderServiceImpl.class, InventoryServiceImpl.class, StockChangePublisher.class, OutboxServiceImpl.class})
+class OrderServiceStatementCountTest {
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("prepareStatement", "createStatement", "prepareCall");
+
+    @TestConfiguration
+    @ComponentScan(basePackageClasses = OrderMapper.class)
+    static class Config {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return JsonMapper.builder().findAndAddModules().build();
+        }
+
+        // Counts the statements of Hibernate and JdbcTemplate alike, both get their connections from here
+        @Bean
+        static BeanPostProcessor statementCounter() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? countingProxy(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T countingProxy(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (STATEMENT_FACTORIES.contains(method.getName())) {
+                    STATEMENTS.incrementAndGet();
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    return result instanceof Connection connection && method.getName().equals("getConnection")
+                            ? countingProxy(Connection.class, connection) : result;
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            });
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void statementCountDoesNotGrowWithTheCart() {
+        // The first order also initialises the pooled id generators
+        placeOrderWithItems("first", 3);
+        int smallOrder = placeOrderWithItems("small", 3);
+        int largeOrder = placeOrderWithItems("large", 30);
+
+        assertEquals(smallOrder, largeOrder);
+        assertTrue(largeOrder <= 15, "placeOrder used " + largeOrder + " statements");
+    }
+
+    private int placeOrderWithItems(String buyer, int items) {
+        User user = entityManager.persist(new User(buyer, buyer + "@example.com", "hash"));
+        Category category = new Category();
+        category.setCategoryName("Category " + buyer);
+        entityManager.persist(category);
+        Cart cart = new Cart();
+        cart.setUser(user);
+        entityManager.persist(cart);
+        for (int i = 0; i < items; i++) {
+            Product product = new Product();
+            product.setProductName("Product " + buyer + " " + i);
+            product.setDescription("A product for testing");
+            product.setQuantity(100);
+            product.setPrice(100);
+            product.setSpecialPrice(90);
+            product.setCategory(category);
+            entityManager.persist(product);
+            entityManager.persist(new CartItem(null, cart, product, 2, 10, 90, 0));
+        }
+        Address address = entityManager.persist(
+                new Address(null, "Main Street", "Tower A", "Berlin", "Berlin", "Germany", "10115", user));
+        entityManager.flush();
+        entityManager.clear();
+
+        STATEMENTS.set(0);
+        OrderDTO order = orderService.placeOrder(buyer + "@example.com", address.getAddressId(),
+                "card", "stripe", "pi_" + buyer, "succeeded", "ok");
+        int statements = STATEMENTS.get();
+
+        assertEquals(items, order.getOrderItems().size());
+        return statements;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.OutboxEvent;
+import com.ecommerce.project.repositories.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Events are published and delivered in separate transactions, so the test runs outside the test transaction
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.app.outboxBatchSize=10"
+})
+@Import({OutboxServiceImpl.class, OutboxDispatcher.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxDispatcherTest {
+    private static final Map<Long, Integer> DELIVERIES = new ConcurrentHashMap<>();
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ObjectMapper objectMapper() {
+            return JsonMapper.builder().findAndAddModules().build();
+        }
+
+        @Bean
+        OutboxEventHandler recordingHandler() {
+            return handler("Recorded", false);
+        }
+
+        @Bean
+        OutboxEventHandler failingHandler() {
+            return handler("Failing", true);
+        }
+
+        private static OutboxEventHandler handler(String eventType, boolean fail) {
+            return new OutboxEventHandler() {
+                @Override
+                public String eventType() {
+                    return eventType;
+                }
+
+                @Override
+                public void handle(OutboxEvent event) {
+                    DELIVERIES.merge(event.getAggregateId(), 1, Integer::sum);
+                    if (fail) {
+                        throw new IllegalStateException("Consumer is down");
+                    }
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private OutboxService outboxService;
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        outboxEventRepository.deleteAll();
+        DELIVERIES.clear();
+    }
+
+    @Test
+    void committedEventsAreDeliveredOnceAndRemoved() {
+        // More than one batch
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (long orderId = 1; orderId <= 25; orderId++) {
+                outboxService.publish("Recorded", orderId, Map.of("orderId", orderId));
+            }
+        });
+
+        outboxDispatcher.dispatch();
+
+        assertEquals(25, DELIVERIES.size());
+        assertTrue(DELIVERIES.values().stream().allMatch(deliveries -> deliveries == 1));
+        assertEquals(0, outboxEventRepository.count());
+        assertEquals(25, meterRegistry.get("outbox.delivery.lag").timer().count());
+    }
+
+    @Test
+    void eventsOfARolledBackTransactionAreNeverDelivered() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxService.publish("Recorded", 1L, Map.of("orderId", 1));
+            status.setRollbackOnly();
+        });
+
+        outboxDispatcher.dispatch();
+
+        assertTrue(DELIVERIES.isEmpty());
+    }
+
+    @Test
+    void eventsCannotBePublishedOutsideATransaction() {
+        assertThrows(RuntimeException.class, () -> outboxService.publish("Recorded", 1L, Map.of("orderId", 1)));
+    }
+
+    @Test
+    void failedDeliveryIsRetriedLater() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxService.publish("Failing", 1L, Map.of("orderId", 1));
+            outboxService.publish("Recorded", 2L, Map.of("orderId", 2));
+        });
+
+        outboxDispatcher.dispatch();
+        // Not due again yet
+        outboxDispatcher.dispatch();
+
+        assertEquals(Map.of(1L, 1, 2L, 1), DELIVERIES);
+        List<OutboxEvent> remaining = outboxEventRepository.findAll();
+        assertEquals(Set.of(1L), remaining.stream().map(OutboxEvent::getAggregateId).collect(Collectors.toSet()));
+        OutboxEvent failed = remaining.get(0);
+        assertEquals(1, failed.getAttempts());
+        assertEquals("Consumer is down", failed.getLastError());
+        assertTrue(failed.getAvailableAt().isAfter(Instant.now()));
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductDto;
+import com.ecommerce.project.payload.ProductResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductJsonWriterTest {
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProductJsonWriter productJsonWriter = new ProductJsonWriter(meterRegistry, objectMapper, 1000);
+    private final AtomicInteger mapped = new AtomicInteger();
+
+    @Test
+    void pageWrittenFromFragmentsEqualsPlainJackson() throws Exception {
+        Product noImage = product(3L, "No image", 10);
+        noImage.setImage(null);
+        noImage.setDescription(null);
+        Page<Product> page = page(product(1L, "Phone", 100), product(2L, "Café \"grinder\" ☕", 250), noImage);
+
+        byte[] expected = objectMapper.writeValueAsBytes(productResponse(page));
+        mapped.set(0);
+        assertArrayEquals(expected, productJsonWriter.write(page, this::toDto));
+        // Written again from the fragments, without mapping the products
+        assertArrayEquals(expected, productJsonWriter.write(page, this::toDto));
+        assertEquals(3, mapped.get());
+    }
+
+    @Test
+    void envelopeFollowsTheMapperConfiguration() throws Exception {
+        ObjectMapper nonEmptyMapper = JsonMapper.builder().findAndAddModules()
+                .serializationInclusion(JsonInclude.Include.NON_EMPTY).build();
+        ProductJsonWriter writer = new ProductJsonWriter(meterRegistry, nonEmptyMapper, 1000);
+        Page<Product> page = page(product(1L, "Phone", 100));
+
+        // nextCursor is left out of the envelope like out of a ProductResponse
+        assertArrayEquals(nonEmptyMapper.writeValueAsBytes(productResponse(page)), writer.write(page, this::toDto));
+        Page<Product> empty = new PageImpl<>(List.of(), PageRequest.of(3, 50), 120);
+        assertArrayEquals(nonEmptyMapper.writeValueAsBytes(productResponse(empty)), writer.write(empty, this::toDto));
+    }
+
+    @Test
+    void updatedProductIsWrittenAgain() {
+        Product phone = product(1L, "Phone", 100);
+        productJsonWriter.write(page(phone, product(2L, "Tablet", 300)), this::toDto);
+
+        // As loaded after the update committed
+        Product updated = product(1L, "Phone", 120);
+        updated.setVersion(phone.getVersion() + 1);
+        mapped.set(0);
+        byte[] json = productJsonWriter.write(page(updated, product(2L, "Tablet", 300)), this::toDto);
+
+        assertEquals(1, mapped.get());
+        assertTrue(new String(json).contains("\"price\":120.0"));
+    }
+
+    @Test
+    void changedProductsAreEvicted() {
+        productJsonWriter.write(page(product(1L, "Phone", 100), product(2L, "Tablet", 300)), this::toDto);
+
+        productJsonWriter.onCatalogChanged(new CatalogChangedEvent(5L, Set.of(1L)));
+        mapped.set(0);
+        productJsonWriter.write(page(product(1L, "Phone", 100), product(2L, "Tablet", 300)), this::toDto);
+
+        assertEquals(1, mapped.get());
+    }
+
+    // Stands in for ProductServiceImpl's mapping, counting the products it maps
+    private ProductDto toDto(Product product) {
+        mapped.incrementAndGet();
+        return new ProductDto(product.getProductId(), product.getProductName(),
+                product.getImage() == null ? null : "http://localhost:8080/images/" + product.getImage(),
+                product.getDescription(), product.getQuantity(), product.getPrice(), product.getDiscount(),
+                product.getSpecialPrice());
+    }
+
+    private ProductResponse productResponse(Page<Product> page) {
+        return new ProductResponse(page.stream().map(this::toDto).toList(), page.getNumber(), page.getSize(),
+                page.getTotalElements(), page.getTotalPages(), page.isLast(), null);
+    }
+
+    private static Product product(Long productId, String name, double price) {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setProductName(name);
+        product.setImage(productId + ".png");
+        product.setDescription("A product for testing");
+        product.setQuantity(10);
+        product.setPrice(price);
+        product.setDiscount(10);
+        product.setSpecialPrice(price * 0.9);
+        return product;
+    }
+
+    private static Page<Product> page(Product... products) {
+        return new PageImpl<>(List.of(products), PageRequest.of(0, 50), 120);
+    }
+}
@@ -0,0 +1,145 @@
+package com.ecommerce.project.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductPageCacheTest {
+    private static final ProductPageCache.Query LISTING =
+            ProductPageCache.Query.listing(null, null, 0, 50, "productId", "asc");
+    private static final ProductPageCache.Query CATEGORY_1 =
+            ProductPageCache.Query.category(1L, 0, 50, "productId", "asc");
+    private static final ProductPageCache.Query CATEGORY_2 =
+            ProductPageCache.Query.category(2L, 0, 50, "productId", "asc");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProductPageCache productPageCache = new ProductPageCache(meterRegistry, 1_000_000, 600);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void repeatedQueryIsServedFromTheCache() {
+        byte[] first = productPageCache.get(LISTING, page());
+        // Same query once normalized
+        byte[] second = productPageCache.get(ProductPageCache.Query.listing("", "", 0, 50, "productId", "asc"), page());
+
+        assertEquals(1, loads.get());
+        assertArrayEquals(first, second);
+        assertTrue(new String(first).contains("\"productName\":\"Product 1\""));
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "productPageCache").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void concurrentMissesLoadThePageOnce() throws Exception {
+        int requests = 10;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        List<Future<byte[]>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return productPageCache.get(LISTING, slowPage(new CountDownLatch(0), new CountDownLatch(0), 200));
+            }));
+        }
+        start.countDown();
+        for (Future<byte[]> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void changeToOneCategoryKeepsThePagesOfTheOthers() {
+        productPageCache.get(LISTING, page());
+        productPageCache.get(CATEGORY_1, page());
+        productPageCache.get(CATEGORY_2, page());
+
+        productPageCache.onCatalogChanged(new CatalogChangedEvent(1L));
+        productPageCache.get(LISTING, page());
+        productPageCache.get(CATEGORY_1, page());
+        productPageCache.get(CATEGORY_2, page());
+        // The listing and category 1 were loaded again
+        assertEquals(5, loads.get());
+
+        productPageCache.onCatalogChanged(new CatalogChangedEvent(null));
+        productPageCache.get(LISTING, page());
+        productPageCache.get(CATEGORY_1, page());
+        productPageCache.get(CATEGORY_2, page());
+        assertEquals(8, loads.get());
+    }
+
+    @Test
+    void pageLoadedAcrossAChangeIsNotServedAfterIt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<byte[]> staleLoad = executor.submit(() -> productPageCache.get(CATEGORY_1, slowPage(loading, changed, 0)));
+
+        // The change commits while the page is loading, from data read before it
+        assertTrue(loading.await(30, TimeUnit.SECONDS));
+        productPageCache.onCatalogChanged(new CatalogChangedEvent(1L));
+        changed.countDown();
+        staleLoad.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        productPageCache.get(CATEGORY_1, page());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void staleGenerationsAreSwept() throws InterruptedException {
+        productPageCache.get(LISTING, page());
+        productPageCache.get(CATEGORY_1, page());
+        productPageCache.get(CATEGORY_2, page());
+
+        productPageCache.onCatalogChanged(new CatalogChangedEvent(1L));
+
+        // Only the page of category 2 is still current
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (cachedPages() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, cachedPages());
+        productPageCache.get(CATEGORY_2, page());
+        assertEquals(3, loads.get());
+    }
+
+    private double cachedPages() {
+        return meterRegistry.get("cache.size").tag("cache", "productPageCache").gauge().value();
+    }
+
+    private Supplier<byte[]> page() {
+        return slowPage(new CountDownLatch(0), new CountDownLatch(0), 0);
+    }
+
+    // Stands in for the service, signalling when it has started and waiting for the test before it returns
+    private Supplier<byte[]> slowPage(CountDownLatch started, CountDownLatch proceed, long millis) {
+        return () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                proceed.await(30, TimeUnit.SECONDS);
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{\"content\":[{\"productId\":1,\"productName\":\"Product 1\"}]}".getBytes(StandardCharsets.UTF_8);
+        };
+    }
+}
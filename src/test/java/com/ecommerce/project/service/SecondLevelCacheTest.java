@@ -0,0 +1,146 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.mapper.ProductMapper;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.CategoryDTO;
+import com.ecommerce.project.payload.ProductDto;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every read and write commits on its own, like separate requests, so the second-level cache is actually used
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({ProductServiceImpl.class, CategoryServiceImpl.class, InventoryServiceImpl.class, StockChangePublisher.class,
+        ProductCountCache.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @TestConfiguration
+    @ComponentScan(basePackageClasses = ProductMapper.class)
+    static class Config {
+    }
+
+    @MockitoBean
+    private CartService cartService;
+    @MockitoBean
+    private FileService fileService;
+    @MockitoBean
+    private ProductJsonWriter productJsonWriter;
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void productReadsHitTheCacheAndSeeUpdates() {
+        Long productId = product("Cached phone", 10);
+
+        productRepository.findById(productId);
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+
+        productService.updateProduct(productId, new ProductDto(productId, "Cached phone", null,
+                "A product for testing", 10, 200, 10, 0));
+
+        assertEquals(200, productRepository.findById(productId).orElseThrow().getPrice());
+    }
+
+    @Test
+    void deletedProductIsEvicted() {
+        Long productId = product("Deleted phone", 10);
+        productRepository.findById(productId);
+
+        productService.deleteProduct(productId);
+
+        assertFalse(entityManagerFactory.getCache().contains(Product.class, productId));
+        assertTrue(productRepository.findById(productId).isEmpty());
+    }
+
+    @Test
+    void stockReservedWithJdbcIsNotServedStale() {
+        Long productId = product("Reserved phone", 10);
+        productRepository.findById(productId);
+
+        inventoryService.reserve(Map.of(productId, 3));
+
+        assertFalse(entityManagerFactory.getCache().contains(Product.class, productId));
+        assertEquals(7, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void categoryListingIsCachedUntilACategoryChanges() {
+        CategoryDTO category = categoryService.createCategory(new CategoryDTO(null, "Phones and tablets"));
+
+        categoryService.getAllCategories(0, 10, "categoryId", "asc");
+        long hitsBefore = statistics.getQueryCacheHitCount();
+        categoryService.getAllCategories(0, 10, "categoryId", "asc");
+        assertTrue(statistics.getQueryCacheHitCount() > hitsBefore);
+
+        categoryService.updateCategory(new CategoryDTO(null, "Smartphones"), category.getCategoryId());
+
+        assertEquals("Smartphones", categoryService.getAllCategories(0, 10, "categoryId", "asc")
+                .getContent().get(0).getCategoryName());
+        assertEquals("Smartphones", categoryRepository.findById(category.getCategoryId()).orElseThrow().getCategoryName());
+    }
+
+    private Long product(String name, int quantity) {
+        // The category is persisted through the product's cascade
+        Category category = new Category();
+        category.setCategoryName("Category of " + name);
+        Product product = new Product();
+        product.setProductName(name);
+        product.setDescription("A product for testing");
+        product.setQuantity(quantity);
+        product.setPrice(100);
+        product.setSpecialPrice(100);
+        product.setCategory(category);
+        return productRepository.save(product).getProductId();
+    }
+}
@@ -0,0 +1,293 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.config.StripeConfig;
+import com.ecommerce.project.exceptions.PaymentGatewayException;
+import com.ecommerce.project.exceptions.PaymentUnavailableException;
+import com.ecommerce.project.payload.AddressDTO;
+import com.ecommerce.project.payload.StripePaymentDto;
+import com.ecommerce.project.repositories.UserRepository;
+import com.ecommerce.project.util.AuthUtil;
+import com.stripe.model.PaymentIntent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs the real Stripe client against a local stand-in that can hold requests or fail them
+@SpringJUnitConfig({StripeConfig.class, StripeServiceImpl.class, SimpleMeterRegistry.class})
+class StripeServiceImplTest {
+    private static final HttpServer STRIPE = startStripe();
+    private static final Map<String, AtomicInteger> REQUESTS = new ConcurrentHashMap<>();
+    private static volatile int failureStatus;
+    // Holds every request until released
+    private static volatile CountDownLatch gate;
+
+    @DynamicPropertySource
+    static void stripeProperties(DynamicPropertyRegistry registry) {
+        registry.add("stripe.secret.key", () -> "sk_test_local");
+        registry.add("stripe.api.base", () -> "http://localhost:" + STRIPE.getAddress().getPort());
+        registry.add("stripe.connectTimeoutMillis", () -> 1000);
+        registry.add("stripe.readTimeoutMillis", () -> 3000);
+        registry.add("stripe.maxNetworkRetries", () -> 0);
+        registry.add("stripe.callTimeoutMillis", () -> 1000);
+        registry.add("stripe.executor.poolSize", () -> 2);
+        registry.add("stripe.executor.queueCapacity", () -> 10);
+        registry.add("stripe.circuitBreaker.failureRateThreshold", () -> 50);
+        registry.add("stripe.circuitBreaker.slidingWindowSize", () -> 4);
+        registry.add("stripe.circuitBreaker.minimumNumberOfCalls", () -> 4);
+        registry.add("stripe.circuitBreaker.waitDurationInOpenStateMillis", () -> 500);
+        registry.add("stripe.circuitBreaker.permittedCallsInHalfOpenState", () -> 1);
+    }
+
+    @Autowired
+    private StripeService stripeService;
+    @Autowired
+    private CircuitBreaker stripeCircuitBreaker;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @MockitoBean
+    private UserRepository userRepository;
+    @MockitoBean
+    private AuthUtil authUtil;
+
+    @BeforeEach
+    void setUp() {
+        when(authUtil.loggedInEmail()).thenReturn("buyer@example.com");
+        failureStatus = 0;
+        gate = null;
+        REQUESTS.clear();
+        stripeCircuitBreaker.reset();
+    }
+
+    @AfterAll
+    static void stopStripe() {
+        STRIPE.stop(0);
+    }
+
+    @Test
+    void createsPaymentIntent() throws Exception {
+        PaymentIntent paymentIntent = stripeService.paymentIntent(payment()).get(5, TimeUnit.SECONDS);
+
+        assertEquals("pi_local_secret", paymentIntent.getClientSecret());
+    }
+
+    @Test
+    void firstCheckoutStoresTheCustomerAndLaterOnesSkipSearchAndUpdate() throws Exception {
+        storedCustomer(null, null);
+        stripeService.paymentIntent(payment()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, requests("POST /v1/customers/search"));
+        ArgumentCaptor<String> addressHash = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updateStripeCustomer(eq(7L), eq("cus_local"), addressHash.capture());
+
+        storedCustomer("cus_known", addressHash.getValue());
+        REQUESTS.clear();
+        PaymentIntent paymentIntent = stripeService.paymentIntent(payment()).get(5, TimeUnit.SECONDS);
+
+        assertEquals("pi_local_secret", paymentIntent.getClientSecret());
+        assertEquals(0, requests("POST /v1/customers/search"));
+        assertEquals(0, requests("POST /v1/customers/cus_known"));
+    }
+
+    @Test
+    void changedAddressUpdatesTheStoredCustomer() throws Exception {
+        storedCustomer("cus_known", "hash of the previous address");
+
+        stripeService.paymentIntent(payment()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(0, requests("POST /v1/customers/search"));
+        assertEquals(1, requests("POST /v1/customers/cus_known"));
+        ArgumentCaptor<String> addressHash = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updateStripeCustomer(eq(7L), eq("cus_known"), addressHash.capture());
+        assertNotEquals("hash of the previous address", addressHash.getValue());
+    }
+
+    @Test
+    void customerIsResolvedForTheLoggedInUserNotTheEmailInTheRequest() throws Exception {
+        storedCustomer("cus_known", "hash of the previous address");
+        StripePaymentDto payment = payment();
+        payment.setEmail("someone.else@example.com");
+
+        stripeService.paymentIntent(payment).get(5, TimeUnit.SECONDS);
+
+        verify(userRepository, never()).findStripeCustomerByEmail("someone.else@example.com");
+        verify(userRepository).updateStripeCustomer(eq(7L), eq("cus_known"), anyString());
+        assertEquals(0, requests("POST /v1/customers/search"));
+    }
+
+    @Test
+    void slowProviderDoesNotBlockTheCallerAndTimesOut() throws Exception {
+        gate = new CountDownLatch(1);
+
+        CompletableFuture<PaymentIntent> paymentIntent = stripeService.paymentIntent(payment());
+
+        // The caller gets the future back right away, the Stripe calls run in the bulkhead
+        assertFalse(paymentIntent.isDone());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> paymentIntent.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(PaymentGatewayException.class, e.getCause());
+
+        // The timed out call keeps its bulkhead thread until Stripe answers, let it finish before the next test
+        gate.countDown();
+        for (int i = 0; i < 50 && requests("POST /v1/payment_intents") == 0; i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    void failingProviderOpensTheBreakerWhichFailsFastAndProbesAgain() throws Exception {
+        failureStatus = 500;
+        for (int i = 0; i < 4; i++) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> stripeService.paymentIntent(payment()).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(PaymentGatewayException.class, e.getCause());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, stripeCircuitBreaker.getState());
+        assertEquals(1, meterRegistry.get("resilience4j.circuitbreaker.state")
+                .tag("name", "stripe").tag("state", "open").gauge().value());
+
+        // Open: rejected before anything is sent to Stripe
+        REQUESTS.clear();
+        CompletableFuture<PaymentIntent> rejected = stripeService.paymentIntent(payment());
+        assertTrue(rejected.isDone());
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(PaymentUnavailableException.class, e.getCause());
+        assertTrue(REQUESTS.isEmpty());
+        assertEquals(1, meterRegistry.get("resilience4j.circuitbreaker.not.permitted.calls")
+                .tag("name", "stripe").functionCounter().count());
+
+        // Half open after the wait duration: a successful probe closes the breaker again
+        failureStatus = 0;
+        Thread.sleep(600);
+        assertEquals("pi_local_secret", stripeService.paymentIntent(payment()).get(5, TimeUnit.SECONDS).getClientSecret());
+        assertEquals(CircuitBreaker.State.CLOSED, stripeCircuitBreaker.getState());
+    }
+
+    @Test
+    void fullBulkheadRejectsFurtherPayments() throws Exception {
+        gate = new CountDownLatch(1);
+        double rejectedBefore = meterRegistry.get("resilience4j.bulkhead.rejected.calls").tag("name", "stripe").counter().count();
+
+        // 2 threads and a queue of 10
+        List<CompletableFuture<PaymentIntent>> admitted = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            admitted.add(stripeService.paymentIntent(payment()));
+        }
+        CompletableFuture<PaymentIntent> rejected = stripeService.paymentIntent(payment());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(PaymentUnavailableException.class, e.getCause());
+        assertEquals(rejectedBefore + 1, meterRegistry.get("resilience4j.bulkhead.rejected.calls")
+                .tag("name", "stripe").counter().count());
+
+        // Drain the bulkhead so later tests start with free threads
+        gate.countDown();
+        CompletableFuture.allOf(admitted.stream().map(f -> f.handle((r, t) -> r)).toArray(CompletableFuture[]::new))
+                .get(10, TimeUnit.SECONDS);
+        // Rejections are not failures of Stripe
+        assertEquals(CircuitBreaker.State.CLOSED, stripeCircuitBreaker.getState());
+    }
+
+    private void storedCustomer(String customerId, String addressHash) {
+        UserRepository.StripeCustomer stored = mock(UserRepository.StripeCustomer.class);
+        when(stored.getUserId()).thenReturn(7L);
+        when(stored.getStripeCustomerId()).thenReturn(customerId);
+        when(stored.getStripeAddressHash()).thenReturn(addressHash);
+        when(userRepository.findStripeCustomerByEmail("buyer@example.com")).thenReturn(Optional.of(stored));
+    }
+
+    private static int requests(String request) {
+        return REQUESTS.getOrDefault(request, new AtomicInteger()).get();
+    }
+
+    private static StripePaymentDto payment() {
+        StripePaymentDto payment = new StripePaymentDto();
+        payment.setAmount(18000L);
+        payment.setCurrency("eur");
+        payment.setEmail("buyer@example.com");
+        payment.setName("Buyer");
+        payment.setDescription("Order");
+        payment.setAddress(new AddressDTO(1L, "Main Street", "Tower A", "Berlin", "Berlin", "DE", "10115"));
+        return payment;
+    }
+
+    private static HttpServer startStripe() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/v1/customers/search", exchange ->
+                    respond(exchange, "{\"object\":\"search_result\",\"data\":[],\"has_more\":false,\"url\":\"/v1/customers/search\"}"));
+            server.createContext("/v1/customers", exchange ->
+                    respond(exchange, "{\"id\":\"cus_local\",\"object\":\"customer\",\"email\":\"buyer@example.com\"}"));
+            server.createContext("/v1/payment_intents", exchange ->
+                    respond(exchange, "{\"id\":\"pi_local\",\"object\":\"payment_intent\",\"client_secret\":\"pi_local_secret\"}"));
+            // Requests must not queue behind a slow one from another test
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        REQUESTS.computeIfAbsent(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(),
+                request -> new AtomicInteger()).incrementAndGet();
+        try {
+            CountDownLatch held = gate;
+            if (held != null) {
+                held.await(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int status = failureStatus;
+        if (status != 0) {
+            json = "{\"error\":{\"type\":\"api_error\",\"message\":\"Injected failure\"}}";
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status != 0 ? status : 200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}